@@ -1,14 +1,22 @@
 package com;
 
+import com.rebeca.AutomatonListener;
 import com.rebeca.ExecutionExceptionHandler;
 import com.rebeca.Rebeca2nbaCommand;
+import com.rebeca.RebecaTranslationException;
 import owl.automaton.Automaton;
 import owl.command.OwlCommand;
 import owl.thirdparty.picocli.CommandLine;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Runs the rebeca commands with command line arguments. Embedding code that does not need the
+ * command line options should use {@link com.rebeca.RebecaTranslator}, which avoids parsing
+ * arguments for every call.
+ */
 public class CommandRunner {
 
     interface Command{
@@ -16,26 +24,49 @@ public class CommandRunner {
     }
 
     public static List<Automaton<?, ?>> rebecaToNba(String rebecaFile, String propertyFile, Boolean print){
-        String[] args = new String[]{Command.REBECA_TO_NBA,
+        return rebecaToNba(rebecaFile, propertyFile, print, List.of());
+    }
+
+    public static List<Automaton<?, ?>> rebecaToNba(String rebecaFile, String propertyFile, Boolean print,
+                                                    List<String> options){
+        return run(rebecaFile, propertyFile, print, options, null).getAutomatons();
+    }
+
+    /**
+     * Translate the properties and hand every automaton to the listener as soon as it is translated,
+     * so that it does not have to be kept until the whole property file is done. The automata are
+     * not added to the in-memory translation cache either.
+     */
+    public static void rebecaToNba(String rebecaFile, String propertyFile, Boolean print,
+                                   List<String> options, AutomatonListener listener){
+        run(rebecaFile, propertyFile, print, options, listener);
+    }
+
+    private static Rebeca2nbaCommand run(String rebecaFile, String propertyFile, Boolean print,
+                                         List<String> options, @Nullable AutomatonListener listener){
+        List<String> argList = new ArrayList<>(List.of(Command.REBECA_TO_NBA,
                 "-i", rebecaFile,
                 "-i", propertyFile,
                 "-p", print != null && print ? "true" : "false",
-                "--run-in-non-native-mode"};
+                "--run-in-non-native-mode"));
+        argList.addAll(options);
+        String[] args = argList.toArray(String[]::new);
         OwlCommand owlCommand = new OwlCommand(args);
         CommandLine cmd = new CommandLine(owlCommand).addSubcommand(Rebeca2nbaCommand.class)
                 .setExecutionExceptionHandler(new ExecutionExceptionHandler());
 
+        CommandLine sub = cmd.getSubcommands().get(Command.REBECA_TO_NBA);
+        if (!(sub.getCommand() instanceof Rebeca2nbaCommand rebecaCmd)) {
+            throw new IllegalStateException("Subcommand " + Command.REBECA_TO_NBA + " is not a Rebeca command");
+        }
+
+        rebecaCmd.setAutomatonListener(listener);
+
         int exitCode = cmd.execute(args);
         if (exitCode != 0){
-            throw new RuntimeException();
+            throw new RebecaTranslationException("Translation of " + propertyFile + " failed with exit code " + exitCode);
         }
-        CommandLine sub = cmd.getParseResult().subcommand().commandSpec().commandLine();
-        List<Automaton<?, ?>> automatons;
-        if (sub.getCommand() instanceof Rebeca2nbaCommand rebecaCmd) {
-            automatons = rebecaCmd.getAutomatons();
-        } else {
-            throw new RuntimeException("Method is not rebeca");
-        }
-        return automatons;
+
+        return rebecaCmd;
     }
 }
@@ -3,10 +3,16 @@ package com;
 
 import owl.automaton.Automaton;
 
+import java.io.IOException;
 import java.util.List;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && "--worker".equals(args[0])) {
+            RebecaWorker.serve(System.in, System.out);
+            return;
+        }
+
         List<Automaton<?, ?>> automatons =
                 CommandRunner.rebecaToNba("DiningPhilosophers.rebeca",
                         "DiningPhilosophers.property", null);
@@ -0,0 +1,195 @@
+package com;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rebeca.FormulaPrinter;
+import com.rebeca.RebecaExpressionConverter;
+import com.rebeca.RebecaTranslator;
+import com.rebeca.TranslationCache;
+import owl.automaton.Automaton;
+import owl.automaton.hoa.HoaWriter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Long-lived worker that serves translation requests as JSON lines.
+ * Each line read from the input is a request of the form
+ * {"id": ..., "model": "m.rebeca", "property": "p.property", "options": [...], "hoa": true}
+ * and is answered by exactly one line on the output. Keeping the process alive between requests
+ * keeps the caches and the JIT-compiled translation code warm, so the latency of a request is
+ * dominated by the translation itself.
+ */
+public final class RebecaWorker {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // One translator per combination of options, so its pipelines stay warm between requests.
+    private static final Map<RebecaTranslator.Options, RebecaTranslator> TRANSLATORS = new ConcurrentHashMap<>();
+
+    private RebecaWorker() {
+        // Utility class - prevent instantiation
+    }
+
+    /**
+     * Serve requests until the input is exhausted.
+     * While serving, everything printed to System.out is redirected to System.err, so only
+     * responses are written to the output.
+     *
+     * @param input the stream requests are read from
+     * @param output the stream responses are written to
+     */
+    public static void serve(InputStream input, PrintStream output) throws IOException {
+        PrintStream originalOut = System.out;
+        // A wrapper that cannot close stderr, whatever closes System.out while serving.
+        System.setOut(new PrintStream(new FilterOutputStream(System.err) {
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        }, true, StandardCharsets.UTF_8));
+
+        try (var reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+             var writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                respond(writer, handle(line));
+            }
+        } finally {
+            System.setOut(originalOut);
+        }
+    }
+
+    private static Map<String, Object> handle(String line) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        JsonNode request;
+
+        try {
+            request = MAPPER.readTree(line);
+        } catch (IOException ex) {
+            response.put("status", "error");
+            response.put("message", "Malformed request: " + ex.getMessage());
+            return response;
+        }
+
+        response.put("id", request.get("id"));
+
+        try {
+            String model = request.path("model").asText(null);
+            String property = request.path("property").asText(null);
+
+            if (model == null || property == null) {
+                throw new IllegalArgumentException("Request requires 'model' and 'property'.");
+            }
+
+            List<String> options = new ArrayList<>();
+            request.path("options").forEach(option -> options.add(option.asText()));
+            RebecaTranslator translator = TRANSLATORS.computeIfAbsent(options(options), RebecaTranslator::nba);
+
+            boolean print = request.path("print").asBoolean(false);
+            boolean includeHoa = request.path("hoa").asBoolean(true);
+            List<Map<String, Object>> results = new ArrayList<>();
+
+            TranslationCache.Stats before = TranslationCache.shared().stats();
+            long start = System.nanoTime();
+
+            // Every automaton is summarised as soon as it is translated and not kept afterwards.
+            // Unlike the command line, the translator reports a missing or broken file as an error.
+            translator.translate(Path.of(model), List.of(Path.of(property)), (formula, automaton) -> {
+                if (print) {
+                    System.out.println(FormulaPrinter.print(formula, new StringBuilder()));
+                }
+
+                results.add(describe(automaton, includeHoa));
+            });
+            long elapsed = System.nanoTime() - start;
+            TranslationCache.Stats after = TranslationCache.shared().stats();
+
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("millis", elapsed / 1_000_000.0);
+            metrics.put("cacheHits", after.hits() - before.hits());
+            metrics.put("cacheMisses", after.misses() - before.misses());
+            metrics.put("cacheEvictions", after.evictions() - before.evictions());
+
+            response.put("status", "ok");
+            response.put("automata", results);
+            response.put("metrics", metrics);
+        } catch (RuntimeException ex) {
+            response.put("status", "error");
+            response.put("message", String.valueOf(ex.getMessage()));
+        }
+
+        return response;
+    }
+
+    /**
+     * The translator settings for the command line options of a request.
+     */
+    private static RebecaTranslator.Options options(List<String> options) {
+        boolean simplifyFormula = true;
+        boolean simplifyAutomaton = true;
+        boolean complete = false;
+        boolean portfolio = true;
+        boolean translationCache = true;
+        Set<RebecaExpressionConverter.Option> conversion = EnumSet.noneOf(RebecaExpressionConverter.Option.class);
+
+        for (String option : options) {
+            switch (option) {
+                case "--skip-formula-simplifier": simplifyFormula = false; break;
+                case "--skip-acceptance-simplifier": simplifyAutomaton = false; break;
+                case "--complete": complete = true; break;
+                case "--skip-translation-portfolio": portfolio = false; break;
+                case "--skip-translation-cache": translationCache = false; break;
+                case "--inline-defines": conversion.add(RebecaExpressionConverter.Option.INLINE_DEFINES); break;
+                case "--domain-constraints": conversion.add(RebecaExpressionConverter.Option.DOMAIN_CONSTRAINTS); break;
+                // Output options have no effect, since automata are only described in the response.
+                case "--dry-run": case "--state-labels": break;
+                default: throw new IllegalArgumentException("Unsupported option " + option);
+            }
+        }
+
+        return new RebecaTranslator.Options(
+                simplifyFormula, simplifyAutomaton, complete, portfolio, translationCache, conversion);
+    }
+
+    private static Map<String, Object> describe(Automaton<?, ?> automaton, boolean includeHoa) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("states", automaton.states().size());
+        result.put("atomicPropositions", automaton.atomicPropositions());
+        result.put("acceptance", automaton.acceptance().booleanExpression().toString());
+
+        if (includeHoa) {
+            result.put("hoa", HoaWriter.toString(automaton));
+        }
+
+        return result;
+    }
+
+    private static void respond(Writer writer, Map<String, Object> response) throws IOException {
+        writer.write(MAPPER.writeValueAsString(response));
+        writer.write('\n');
+        writer.flush();
+    }
+}
@@ -1,5 +1,6 @@
 package com.rebeca;
 
+import com.google.common.util.concurrent.Uninterruptibles;
 import owl.automaton.Automaton;
 import owl.automaton.acceptance.EmersonLeiAcceptance;
 import owl.command.*;
@@ -10,7 +11,13 @@ import owl.thirdparty.picocli.CommandLine.Option;
 import owl.translations.LtlTranslationRepository;
 import owl.translations.LtlTranslationRepository.LtlTranslation;
 
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 import static owl.translations.LtlTranslationRepository.Option.*;
 
@@ -46,10 +53,26 @@ public abstract class AbstractRebeca2AutomatonCommand
 
     private List<Automaton<?, ?>> automatons;
 
+    private AutomatonListener listener;
+
+    /**
+     * The automata of the last run in the order of their definitions. Empty if the automata were
+     * handed to a listener instead.
+     */
     public List<Automaton<?, ?>> getAutomatons() {
         return automatons;
     }
 
+    /**
+     * Hand every automaton to the listener as soon as it is translated instead of collecting all
+     * automata of a run for {@link #getAutomatons()}. With a listener the automata bypass the
+     * in-memory translation cache, which would otherwise keep up to its limit of them alive, so an
+     * automaton can be released once the listener returns. A persistent cache is still used.
+     */
+    public void setAutomatonListener(AutomatonListener listener) {
+        this.listener = listener;
+    }
+
     @Option(
             names = "--skip-translation-portfolio",
             description = "Bypass the portfolio of constructions from [S19, SE20] that directly "
@@ -57,6 +80,46 @@ public abstract class AbstractRebeca2AutomatonCommand
     )
     private boolean skipPortfolio = false;
 
+    @Option(
+            names = "--workers",
+            description = "Number of formulas that are translated concurrently. Automata are still "
+                    + "written and returned in the order of their definitions. The default value 1 "
+                    + "translates all formulas sequentially."
+    )
+    private int workers = 1;
+
+    @Option(
+            names = "--skip-translation-cache",
+            description = "Bypass the in-memory cache that reuses automata of formulas that have "
+                    + "already been translated with the same options by the same thread of this "
+                    + "process."
+    )
+    private boolean skipTranslationCache = false;
+
+    @Option(
+            names = "--cache-dir",
+            description = "Directory of a persistent automaton cache. Automata found in the "
+                    + "directory are read instead of being translated again and new translations are "
+                    + "added to it. By default no persistent cache is used."
+    )
+    private Path cacheDirectory = null;
+
+    @Option(
+            names = "--cache-max-size",
+            description = "Size limit of the persistent automaton cache in megabytes. If the limit is "
+                    + "exceeded, the least recently used automata are removed (default: ${DEFAULT-VALUE})."
+    )
+    private long cacheMaximumSize = 1024;
+
+    @Option(
+            names = "--watch",
+            description = "Keep running after the initial translation. Whenever the model or a "
+                    + "property file is modified, only the definitions whose expressions changed are "
+                    + "translated again and written immediately."
+    )
+    private boolean watch = false;
+
+    private AutomatonDiskCache diskCache;
 
     @Override
     protected int run() throws Exception {
@@ -84,22 +147,123 @@ public abstract class AbstractRebeca2AutomatonCommand
         basicOptions.addAll(extraOptions());
 
         var subcommand = getClass().getAnnotation(CommandLine.Command.class).name();
-        var translator = translation.translation(acceptanceClass, basicOptions, lookahead());
+        var configuration = new TranslationCache.Configuration(
+                translation, acceptanceClass, basicOptions, lookahead());
 
+        diskCache = cacheDirectory == null
+                ? null
+                : new AutomatonDiskCache(cacheDirectory, cacheMaximumSize * 1024 * 1024);
 
         try (var source = formulaReader.source();
              var sink = automatonWriter.sink(subcommand, rawArgs())) {
 
-            Iterator<LabelledFormula> formulaIterator = source.iterator();
-            List<Automaton<?, ?>> automatonList = new ArrayList<>();
-            while (formulaIterator.hasNext()) {
-                LabelledFormula formula = formulaIterator.next();
-                automatonList.add(translator.apply(formula));
-                sink.accept(translator.apply(formula), "Automaton for " + formula);
+            List<LabelledFormula> formulas = source.toList();
+            List<Automaton<?, ?>> automatonList = new ArrayList<>(listener == null ? formulas.size() : 0);
+
+            if (workers <= 1 || formulas.size() <= 1) {
+                var translator = translation.translation(acceptanceClass, basicOptions, lookahead());
+
+                for (LabelledFormula formula : formulas) {
+                    Automaton<?, ?> automaton = translate(formula, configuration, translator);
+                    sink.accept(automaton, automatonName(formula));
+                    deliver(formula, automaton, automatonList);
+                }
+            } else {
+                // Every worker thread builds its own translation pipeline, so the BDD factories the
+                // pipeline obtains from FactorySupplier.defaultSupplier() are never shared between
+                // threads.
+                Map<Thread, Function<LabelledFormula, ? extends Automaton<?, ?>>> translators =
+                        new ConcurrentHashMap<>();
+                ExecutorService executor = WorkerPool.workers(workers);
+                List<Future<? extends Automaton<?, ?>>> futures = new ArrayList<>(formulas.size());
+
+                try {
+                    for (int i = 0; i < formulas.size(); i++) {
+                        // Keep at most 'workers' translations in flight.
+                        while (futures.size() < formulas.size() && futures.size() < i + workers) {
+                            LabelledFormula formula = formulas.get(futures.size());
+                            futures.add(executor.submit(() -> translate(formula, configuration,
+                                    translators.computeIfAbsent(Thread.currentThread(), thread ->
+                                            translation.translation(acceptanceClass, basicOptions, lookahead())))));
+                        }
+
+                        // Collect in submission order to keep the output deterministic.
+                        Automaton<?, ?> automaton = await(futures.get(i));
+                        // Drop the completed future, which would otherwise keep the automaton alive.
+                        futures.set(i, null);
+                        sink.accept(automaton, automatonName(formulas.get(i)));
+                        deliver(formulas.get(i), automaton, automatonList);
+                    }
+                } finally {
+                    futures.stream().filter(Objects::nonNull).forEach(future -> future.cancel(true));
+                }
             }
+
             automatons = automatonList;
+
+            if (watch) {
+                var translator = translation.translation(acceptanceClass, basicOptions, lookahead());
+                List<Path> inputFiles = formulaReader.inputFiles().stream().map(Path::of).toList();
+
+                new PropertyWatcher(inputFiles.get(0), inputFiles.subList(1, inputFiles.size()),
+                        formulaReader.conversionOptions(), (propertyFile, definitionName, formula) -> {
+                            Automaton<?, ?> automaton = translate(formula, configuration, translator);
+                            sink.accept(automaton, automatonName(formula));
+
+                            if (listener != null) {
+                                listener.translated(formula, automaton);
+                            }
+                        }).watch();
+            }
         }
 
         return 0;
     }
+
+    private void deliver(LabelledFormula formula, Automaton<?, ?> automaton,
+                         List<Automaton<?, ?>> automatonList) throws Exception {
+        if (listener == null) {
+            automatonList.add(automaton);
+        } else {
+            listener.translated(formula, automaton);
+        }
+    }
+
+    private Automaton<?, ?> translate(LabelledFormula formula,
+                                      TranslationCache.Configuration configuration,
+                                      Function<LabelledFormula, ? extends Automaton<?, ?>> translator) {
+        Function<LabelledFormula, ? extends Automaton<?, ?>> uncached = diskCache == null
+                ? translator
+                : labelledFormula -> diskCache.translate(labelledFormula, configuration, translator);
+
+        if (skipTranslationCache || listener != null) {
+            return uncached.apply(formula);
+        }
+
+        return TranslationCache.shared()
+                .translate(new TranslationCache.Key(formula, configuration), uncached);
+    }
+
+    private static String automatonName(LabelledFormula formula) {
+        return FormulaPrinter.print(formula, new StringBuilder("Automaton for ")).toString();
+    }
+
+    private static <T> T await(Future<T> future) throws Exception {
+        try {
+            return Uninterruptibles.getUninterruptibly(future);
+        } catch (ExecutionException ex) {
+            var cause = ex.getCause();
+
+            // Unpack exceptions and errors.
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw ex;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package com.rebeca;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Assigns consecutive indices to atomic proposition names.
+ * A registry belongs to a single conversion and is not shared between threads; concurrent
+ * conversions each use their own registry.
+ */
+public final class AtomicPropositionRegistry {
+
+    private final Map<String, Integer> indices = new HashMap<>();
+
+    // The name of every atomic proposition, or the Deferred name of one that has not been named yet
+    private final List<Object> names = new ArrayList<>();
+
+    private record Deferred(Supplier<String> name) {
+    }
+
+    /**
+     * Return the index of the atomic proposition, registering it if it is new.
+     *
+     * @param name the name of the atomic proposition
+     * @return the index of the atomic proposition
+     */
+    public int indexOf(String name) {
+        Integer index = indices.get(name);
+
+        if (index == null) {
+            index = names.size();
+            indices.put(name, index);
+            names.add(name);
+        }
+
+        return index;
+    }
+
+    /**
+     * Register a new atomic proposition that is named only when its name is first requested. The
+     * caller identifies the proposition, e.g. by the declarations it refers to, and registers it
+     * only once.
+     *
+     * @param name derives the name of the atomic proposition
+     * @return the index of the atomic proposition
+     */
+    public int register(Supplier<String> name) {
+        names.add(new Deferred(name));
+        return names.size() - 1;
+    }
+
+    /**
+     * The name of the atomic proposition with the given index.
+     */
+    public String name(int index) {
+        Object name = names.get(index);
+
+        if (name instanceof Deferred deferred) {
+            String derived = deferred.name().get();
+            names.set(index, derived);
+            indices.putIfAbsent(derived, index);
+            return derived;
+        }
+
+        return (String) name;
+    }
+
+    /**
+     * The names of all registered atomic propositions ordered by their index.
+     */
+    public List<String> names() {
+        List<String> all = new ArrayList<>(names.size());
+
+        for (int i = 0; i < names.size(); i++) {
+            all.add(name(i));
+        }
+
+        return List.copyOf(all);
+    }
+
+    public int size() {
+        return names.size();
+    }
+}
@@ -0,0 +1,338 @@
+package com.rebeca;
+
+import owl.automaton.Automaton;
+import owl.automaton.hoa.HoaReader;
+import owl.automaton.hoa.HoaWriter;
+import owl.bdd.FactorySupplier;
+import owl.ltl.LabelledFormula;
+import owl.thirdparty.jhoafparser.parser.generated.ParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent, content-addressed cache of translated automata.
+ * Every entry is stored as a HOA file whose name is the SHA-256 hash of the normalised formula
+ * and the translation configuration. Entries are written to a temporary file first and then moved
+ * into place, carry a checksum that is verified on every read, and are read back through a
+ * memory-mapped buffer. The sizes of the entries are kept in an index in least-recently-used
+ * order, which is built from the directory once when the cache is opened. Only once the index
+ * exceeds the size limit, the directory is listed again, since other processes may share it, and
+ * the least recently used entries are deleted until a tenth of the limit is free again.
+ */
+public final class AutomatonDiskCache {
+
+    private static final String FORMAT = "rebeca-automaton-cache 1";
+    private static final String SUFFIX = ".hoa";
+
+    private final Path directory;
+    private final long maximumBytes;
+
+    // Entry sizes in least-recently-used order and their sum, guarded by this.
+    private final LinkedHashMap<Path, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+    private long size = 0;
+
+    /**
+     * Open a cache directory, creating it if necessary.
+     *
+     * @param directory the cache directory
+     * @param maximumBytes the size limit of all entries together
+     */
+    public AutomatonDiskCache(Path directory, long maximumBytes) throws IOException {
+        if (maximumBytes < 1) {
+            throw new IllegalArgumentException("Cache size limit must be positive.");
+        }
+
+        this.directory = Files.createDirectories(directory);
+        this.maximumBytes = maximumBytes;
+        rebuildIndex();
+    }
+
+    /**
+     * Return the cached automaton for the formula or translate the formula and store the result.
+     *
+     * @param formula the formula to translate
+     * @param configuration the translation configuration
+     * @param translator the translation matching the configuration
+     * @return the automaton for the formula
+     */
+    public Automaton<?, ?> translate(
+            LabelledFormula formula,
+            TranslationCache.Configuration configuration,
+            Function<? super LabelledFormula, ? extends Automaton<?, ?>> translator) {
+
+        Path entry = directory.resolve(key(formula, configuration) + SUFFIX);
+        Automaton<?, ?> automaton = read(entry);
+
+        if (automaton == null) {
+            automaton = translator.apply(formula);
+            write(entry, automaton);
+        }
+
+        return automaton;
+    }
+
+    static String key(LabelledFormula formula, TranslationCache.Configuration configuration) {
+        String options = configuration.options().stream()
+                .map(Enum::name)
+                .sorted()
+                .collect(Collectors.joining(","));
+
+        String normalised = String.join("\n",
+                FORMAT,
+                formula.formula().toString(),
+                String.join(",", formula.atomicPropositions()),
+                String.valueOf(configuration.translation()),
+                configuration.acceptanceClass().getName(),
+                options,
+                configuration.lookahead().toString());
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(normalised.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private Automaton<?, ?> read(Path entry) {
+        try (var channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CharBuffer body = verify(buffer);
+
+            if (body == null) {
+                System.err.println("Removing corrupted cache entry " + entry);
+                remove(entry);
+                return null;
+            }
+
+            List<Automaton<?, ?>> automata = new ArrayList<>(1);
+            HoaReader.readStream(new CharBufferReader(body),
+                    FactorySupplier.defaultSupplier()::getBddSetFactory,
+                    null,
+                    automata::add);
+
+            if (automata.size() != 1) {
+                remove(entry);
+                return null;
+            }
+
+            // Mark the entry as recently used, for this process and for others sharing the directory.
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            used(entry, channel.size());
+            return automata.get(0);
+        } catch (NoSuchFileException ex) {
+            return null;
+        } catch (IOException | ParseException ex) {
+            System.err.println("Ignoring unreadable cache entry " + entry + ": " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Check the header of an entry and return its HOA body, or null if the entry is corrupted.
+     */
+    private static CharBuffer verify(ByteBuffer buffer) {
+        int headerEnd = -1;
+
+        for (int i = 0; i < buffer.limit(); i++) {
+            if (buffer.get(i) == '\n') {
+                headerEnd = i;
+                break;
+            }
+        }
+
+        if (headerEnd < 0) {
+            return null;
+        }
+
+        byte[] headerBytes = new byte[headerEnd];
+        buffer.get(0, headerBytes);
+        String[] header = new String(headerBytes, StandardCharsets.UTF_8).split(" ");
+
+        if (header.length != 4 || !FORMAT.equals(header[0] + ' ' + header[1])) {
+            return null;
+        }
+
+        ByteBuffer body = buffer.slice(headerEnd + 1, buffer.limit() - headerEnd - 1);
+
+        try {
+            if (body.remaining() != Long.parseLong(header[3])) {
+                return null;
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(body.duplicate());
+
+            if (crc.getValue() != Long.parseLong(header[2], 16)) {
+                return null;
+            }
+
+            return StandardCharsets.UTF_8.newDecoder().decode(body);
+        } catch (NumberFormatException | CharacterCodingException ex) {
+            return null;
+        }
+    }
+
+    private void write(Path entry, Automaton<?, ?> automaton) {
+        byte[] body = HoaWriter.toString(automaton).getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        byte[] header = (FORMAT + ' ' + Long.toHexString(crc.getValue()) + ' ' + body.length + '\n')
+                .getBytes(StandardCharsets.UTF_8);
+
+        Path temporary = null;
+
+        try {
+            temporary = Files.createTempFile(directory, entry.getFileName().toString(), ".tmp");
+
+            try (var channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ByteBuffer[] buffers = {ByteBuffer.wrap(header), ByteBuffer.wrap(body)};
+
+                while (buffers[1].hasRemaining()) {
+                    channel.write(buffers);
+                }
+
+                channel.force(true);
+            }
+
+            try {
+                Files.move(temporary, entry,
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            used(entry, header.length + body.length);
+            evict();
+        } catch (IOException ex) {
+            // The cache is an optimisation only; a failed write must not fail the translation.
+            System.err.println("Could not write cache entry " + entry + ": " + ex.getMessage());
+
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException ignored) {
+                    // Nothing left to do.
+                }
+            }
+        }
+    }
+
+    private synchronized void used(Path entry, long bytes) {
+        Long previous = index.put(entry, bytes);
+        size += bytes - (previous == null ? 0 : previous);
+    }
+
+    private synchronized void remove(Path entry) throws IOException {
+        Long previous = index.remove(entry);
+
+        if (previous != null) {
+            size -= previous;
+        }
+
+        Files.deleteIfExists(entry);
+    }
+
+    private synchronized void evict() throws IOException {
+        if (size <= maximumBytes) {
+            return;
+        }
+
+        // Other processes may have added or removed entries in the meantime.
+        rebuildIndex();
+        long target = maximumBytes - maximumBytes / 10;
+        Iterator<Map.Entry<Path, Long>> iterator = index.entrySet().iterator();
+
+        while (size > target && iterator.hasNext()) {
+            Map.Entry<Path, Long> eldest = iterator.next();
+            Files.deleteIfExists(eldest.getKey());
+            size -= eldest.getValue();
+            iterator.remove();
+        }
+    }
+
+    private synchronized void rebuildIndex() throws IOException {
+        record CachedFile(Path path, long size, FileTime lastModified) {
+        }
+
+        List<Path> paths;
+
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).toList();
+        }
+
+        List<CachedFile> cachedFiles = new ArrayList<>(paths.size());
+
+        for (Path path : paths) {
+            try {
+                cachedFiles.add(new CachedFile(path, Files.size(path), Files.getLastModifiedTime(path)));
+            } catch (NoSuchFileException ex) {
+                // Removed concurrently.
+            }
+        }
+
+        cachedFiles.sort(Comparator.comparing(CachedFile::lastModified));
+        index.clear();
+        size = 0;
+
+        for (CachedFile cachedFile : cachedFiles) {
+            index.put(cachedFile.path(), cachedFile.size());
+            size += cachedFile.size();
+        }
+    }
+
+    /**
+     * Reader over a decoded buffer, which avoids copying the cache entry into a string.
+     */
+    private static final class CharBufferReader extends Reader {
+
+        private final CharBuffer buffer;
+
+        private CharBufferReader(CharBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read(char[] chars, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(chars, offset, count);
+            return count;
+        }
+
+        @Override
+        public void close() {
+            // Nothing to release.
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.rebeca;
+
+import owl.automaton.Automaton;
+import owl.ltl.LabelledFormula;
+
+/**
+ * Receives every automaton as soon as it has been translated and written.
+ * The command keeps no reference to an automaton it has handed to the listener, so the automaton
+ * can be released once the listener returns.
+ */
+@FunctionalInterface
+public interface AutomatonListener {
+    void translated(LabelledFormula formula, Automaton<?, ?> automaton) throws Exception;
+}
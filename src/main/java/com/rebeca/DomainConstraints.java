@@ -0,0 +1,298 @@
+package com.rebeca;
+
+import org.rebecalang.compiler.modelcompiler.corerebeca.objectmodel.*;
+import owl.ltl.BooleanConstant;
+import owl.ltl.Formula;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Relations between comparison atoms over the same state variable.
+ * An atom such as {@code phil0.count < 2} compares a variable of a primitive type with a constant
+ * and therefore stands for a set of values of the variable. Atoms over the same variable whose sets
+ * are disjoint, nested or together cover the whole domain cannot take every combination of truth
+ * values, e.g. {@code x == 0} and {@code x == 1} are never true together. The resulting constraints
+ * are expressed as invariants over the atoms, so the translation can drop the letters that no
+ * state of the model produces.
+ */
+final class DomainConstraints {
+
+    /**
+     * The values of a variable for which a comparison atom holds, as sorted disjoint closed
+     * intervals {@code [bounds[0], bounds[1]], [bounds[2], bounds[3]], ...}.
+     */
+    private record Atom(String variable, long domainLow, long domainHigh, long[] bounds) {
+    }
+
+    // Comparison atoms by the global index of their atomic proposition
+    private final Map<Integer, Atom> atoms = new HashMap<>();
+
+    /**
+     * Record the atom if the expression compares a primitive state variable with an integer or
+     * Boolean constant; other expressions are ignored.
+     *
+     * @param index the global index of the atomic proposition of the expression
+     * @param expression the comparison
+     * @param names the name of an expression as it appears in atomic propositions
+     */
+    void add(int index, BinaryExpression expression, Function<Expression, String> names) {
+        String operator = expression.getOperator();
+        Expression variable = expression.getLeft();
+        Long constant = constantOf(expression.getRight());
+
+        if (constant == null) {
+            // The constant may be on the left, e.g. 0 < x, which is x > 0.
+            variable = expression.getRight();
+            constant = constantOf(expression.getLeft());
+            operator = mirror(operator);
+        }
+
+        String type = constant == null ? null : variableType(variable);
+
+        if (type == null || operator == null) {
+            return;
+        }
+
+        long domainLow;
+        long domainHigh;
+
+        switch (type) {
+            case "boolean": domainLow = 0; domainHigh = 1; break;
+            case "byte": domainLow = Byte.MIN_VALUE; domainHigh = Byte.MAX_VALUE; break;
+            case "short": domainLow = Short.MIN_VALUE; domainHigh = Short.MAX_VALUE; break;
+            case "int": domainLow = Integer.MIN_VALUE; domainHigh = Integer.MAX_VALUE; break;
+            default: return;
+        }
+
+        // Constants outside of the domain behave like the nearest value outside of it.
+        long c = Math.max(domainLow - 1, Math.min(domainHigh + 1, constant));
+        long[] bounds;
+
+        switch (operator) {
+            case "==": bounds = new long[] {c, c}; break;
+            case "!=": bounds = new long[] {domainLow, c - 1, c + 1, domainHigh}; break;
+            case "<": bounds = new long[] {domainLow, c - 1}; break;
+            case "<=": bounds = new long[] {domainLow, c}; break;
+            case ">": bounds = new long[] {c + 1, domainHigh}; break;
+            case ">=": bounds = new long[] {c, domainHigh}; break;
+            default: return;
+        }
+
+        atoms.put(index, new Atom(names.apply(variable), domainLow, domainHigh,
+                clamp(bounds, domainLow, domainHigh)));
+    }
+
+    /**
+     * Build the invariant G(...) relating the given atoms, or true if they are unrelated.
+     *
+     * @param indices the global indices of the atomic propositions used by a formula
+     * @param literal the literal of a global index
+     * @param formulas the factory to build the constraint with
+     */
+    Formula constraints(List<Integer> indices, IntFunction<Formula> literal, FormulaFactory formulas) {
+        Map<String, List<Integer>> byVariable = new HashMap<>();
+
+        for (Integer index : indices) {
+            Atom atom = atoms.get(index);
+            if (atom != null) {
+                byVariable.computeIfAbsent(atom.variable(), key -> new ArrayList<>()).add(index);
+            }
+        }
+
+        Formula invariant = BooleanConstant.TRUE;
+
+        for (List<Integer> group : byVariable.values()) {
+            for (int i = 0; i < group.size(); i++) {
+                Atom a = atoms.get(group.get(i));
+                Formula p = literal.apply(group.get(i));
+
+                if (a.bounds().length == 0) {
+                    invariant = formulas.conjunction(invariant, formulas.negation(p));
+                    continue;
+                }
+
+                if (covers(a)) {
+                    invariant = formulas.conjunction(invariant, p);
+                    continue;
+                }
+
+                for (int j = i + 1; j < group.size(); j++) {
+                    Atom b = atoms.get(group.get(j));
+                    Formula q = literal.apply(group.get(j));
+
+                    // Constant atoms are handled on their own.
+                    if (b.bounds().length == 0 || covers(b)) {
+                        continue;
+                    }
+
+                    if (disjoint(a.bounds(), b.bounds())) {
+                        invariant = formulas.conjunction(invariant,
+                                formulas.disjunction(formulas.negation(p), formulas.negation(q)));
+                    }
+                    if (subset(a.bounds(), b.bounds())) {
+                        invariant = formulas.conjunction(invariant, formulas.implication(p, q));
+                    }
+                    if (subset(b.bounds(), a.bounds())) {
+                        invariant = formulas.conjunction(invariant, formulas.implication(q, p));
+                    }
+                    if (subset(complement(a), b.bounds())) {
+                        invariant = formulas.conjunction(invariant, formulas.disjunction(p, q));
+                    }
+                }
+            }
+        }
+
+        return formulas.globally(invariant);
+    }
+
+    private static Long constantOf(Expression expression) {
+        boolean negative = false;
+
+        if (expression instanceof UnaryExpression
+                && "-".equals(((UnaryExpression) expression).getOperator())) {
+            negative = true;
+            expression = ((UnaryExpression) expression).getExpression();
+        }
+
+        if (!(expression instanceof Literal)) {
+            return null;
+        }
+
+        String value = ((Literal) expression).getLiteralValue();
+
+        if (value == null) {
+            return null;
+        }
+
+        if (!negative && value.equals("true")) {
+            return 1L;
+        }
+
+        if (!negative && value.equals("false")) {
+            return 0L;
+        }
+
+        try {
+            long parsed = Long.parseLong(value);
+            return negative ? -parsed : parsed;
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * The primitive type of a plain state variable, or null if the expression is something else,
+     * e.g. an array element, whose atoms do not share the name of their variable.
+     */
+    private static String variableType(Expression variable) {
+        TermPrimary term;
+
+        if (variable instanceof DotPrimary) {
+            DotPrimary dot = (DotPrimary) variable;
+            if (!(dot.getLeft() instanceof TermPrimary) || !(dot.getRight() instanceof TermPrimary)
+                    || !isPlain((TermPrimary) dot.getLeft())) {
+                return null;
+            }
+            term = (TermPrimary) dot.getRight();
+        } else if (variable instanceof TermPrimary) {
+            term = (TermPrimary) variable;
+        } else {
+            return null;
+        }
+
+        if (!isPlain(term) || !(term.getType() instanceof OrdinaryPrimitiveType)) {
+            return null;
+        }
+
+        return ((OrdinaryPrimitiveType) term.getType()).getName();
+    }
+
+    private static boolean isPlain(TermPrimary term) {
+        return (term.getIndices() == null || term.getIndices().isEmpty())
+                && (term.getParentSuffixPrimary() == null
+                    || term.getParentSuffixPrimary().getArguments().isEmpty());
+    }
+
+    private static String mirror(String operator) {
+        switch (operator) {
+            case "==": case "!=": return operator;
+            case "<": return ">";
+            case "<=": return ">=";
+            case ">": return "<";
+            case ">=": return "<=";
+            default: return null;
+        }
+    }
+
+    private static long[] clamp(long[] bounds, long low, long high) {
+        List<Long> clamped = new ArrayList<>(bounds.length);
+
+        for (int i = 0; i < bounds.length; i += 2) {
+            long from = Math.max(bounds[i], low);
+            long to = Math.min(bounds[i + 1], high);
+            if (from <= to) {
+                clamped.add(from);
+                clamped.add(to);
+            }
+        }
+
+        return clamped.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static long[] complement(Atom atom) {
+        long[] bounds = atom.bounds();
+        long[] gaps = new long[bounds.length + 2];
+        long next = atom.domainLow();
+        int size = 0;
+
+        for (int i = 0; i < bounds.length; i += 2) {
+            gaps[size++] = next;
+            gaps[size++] = bounds[i] - 1;
+            next = bounds[i + 1] + 1;
+        }
+
+        gaps[size++] = next;
+        gaps[size++] = atom.domainHigh();
+        return clamp(gaps, atom.domainLow(), atom.domainHigh());
+    }
+
+    private static boolean covers(Atom atom) {
+        long[] bounds = atom.bounds();
+        return bounds.length == 2 && bounds[0] == atom.domainLow() && bounds[1] == atom.domainHigh();
+    }
+
+    private static boolean disjoint(long[] a, long[] b) {
+        for (int i = 0; i < a.length; i += 2) {
+            for (int j = 0; j < b.length; j += 2) {
+                if (a[i] <= b[j + 1] && b[j] <= a[i + 1]) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Whether every interval of a lies in an interval of b. The intervals of b are separated by
+     * gaps, so an interval of a that is covered by b lies in a single interval of b.
+     */
+    private static boolean subset(long[] a, long[] b) {
+        outer:
+        for (int i = 0; i < a.length; i += 2) {
+            for (int j = 0; j < b.length; j += 2) {
+                if (b[j] <= a[i] && a[i + 1] <= b[j + 1]) {
+                    continue outer;
+                }
+            }
+            return false;
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,223 @@
+package com.rebeca;
+
+import owl.ltl.*;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hash-consing factory for the formulas built by {@link RebecaExpressionConverter}.
+ * Every formula returned by the factory is the canonical instance of its structural equivalence
+ * class within the factory, so repeated subformulas, e.g. the operands duplicated by the
+ * translation of {@code <->} and {@code ?:}, are shared instead of being rebuilt. Since operands
+ * are canonical as well, equality checks on them are decided by identity.
+ * The factory also performs the cheap propositional simplifications: constants are folded through
+ * all operators, double negations cancel, negated literals stay literals, and nested {@code &&} and
+ * {@code ||} chains are flattened into a single conjunction or disjunction. A factory is not
+ * thread-safe and is meant to live as long as one converter.
+ */
+final class FormulaFactory {
+
+    private final Map<Formula, Formula> formulas = new HashMap<>();
+
+    @SuppressWarnings("unchecked")
+    <F extends Formula> F intern(F formula) {
+        // Formula.equals compares classes, hence the canonical instance has the same type.
+        return (F) formulas.computeIfAbsent(formula, key -> key);
+    }
+
+    Formula literal(int atomicProposition) {
+        // Literals are interned globally by Literal itself.
+        return Literal.of(atomicProposition);
+    }
+
+    Formula conjunction(Formula left, Formula right) {
+        return junction(true, left, right);
+    }
+
+    Formula disjunction(Formula left, Formula right) {
+        return junction(false, left, right);
+    }
+
+    /**
+     * Build a flattened conjunction or disjunction. Constants are folded, repeated operands are
+     * dropped and an operand next to its complement decides the result.
+     */
+    private Formula junction(boolean conjunction, Formula left, Formula right) {
+        Formula absorbing = conjunction ? BooleanConstant.FALSE : BooleanConstant.TRUE;
+        Formula neutral = conjunction ? BooleanConstant.TRUE : BooleanConstant.FALSE;
+        Class<? extends Formula> type = conjunction ? Conjunction.class : Disjunction.class;
+
+        // Operands built by this factory are flat already, so one level of flattening suffices.
+        Set<Formula> operands = new LinkedHashSet<>();
+        for (Formula operand : List.of(left, right)) {
+            if (type.isInstance(operand)) {
+                operands.addAll(operand.operands);
+            } else {
+                operands.add(operand);
+            }
+        }
+
+        if (operands.contains(absorbing)) {
+            return absorbing;
+        }
+
+        operands.remove(neutral);
+
+        for (Formula operand : operands) {
+            Formula positive = positiveOf(operand);
+            if (positive != null && operands.contains(positive)) {
+                return absorbing;
+            }
+        }
+
+        switch (operands.size()) {
+            case 0:
+                return neutral;
+            case 1:
+                return operands.iterator().next();
+            default:
+                List<Formula> list = List.copyOf(operands);
+                return conjunction ? intern(new Conjunction(list)) : intern(new Disjunction(list));
+        }
+    }
+
+    /**
+     * The operand of a negated formula, or null if the formula is not a negation
+     */
+    private static Formula positiveOf(Formula formula) {
+        if (formula instanceof Literal) {
+            Literal literal = (Literal) formula;
+            return literal.isNegated() ? literal.not() : null;
+        }
+
+        return formula instanceof Negation ? formula.operands.get(0) : null;
+    }
+
+    Formula negation(Formula operand) {
+        if (operand instanceof BooleanConstant) {
+            return operand == BooleanConstant.TRUE ? BooleanConstant.FALSE : BooleanConstant.TRUE;
+        }
+
+        if (operand instanceof Literal) {
+            return ((Literal) operand).not();
+        }
+
+        if (operand instanceof Negation) {
+            return operand.operands.get(0);
+        }
+
+        return intern(new Negation(operand));
+    }
+
+    Formula implication(Formula left, Formula right) {
+        return disjunction(negation(left), right);
+    }
+
+    Formula biconditional(Formula left, Formula right) {
+        if (left == right) {
+            return BooleanConstant.TRUE;
+        }
+
+        return conjunction(implication(left, right), implication(right, left));
+    }
+
+    Formula ifThenElse(Formula condition, Formula thenFormula, Formula elseFormula) {
+        if (condition == BooleanConstant.TRUE || thenFormula == elseFormula) {
+            return thenFormula;
+        }
+
+        if (condition == BooleanConstant.FALSE) {
+            return elseFormula;
+        }
+
+        return disjunction(conjunction(condition, thenFormula), conjunction(negation(condition), elseFormula));
+    }
+
+    Formula globally(Formula operand) {
+        if (operand instanceof BooleanConstant || operand instanceof GOperator) {
+            return operand;
+        }
+
+        return intern(new GOperator(operand));
+    }
+
+    Formula eventually(Formula operand) {
+        if (operand instanceof BooleanConstant || operand instanceof FOperator) {
+            return operand;
+        }
+
+        return intern(new FOperator(operand));
+    }
+
+    Formula next(Formula operand) {
+        if (operand instanceof BooleanConstant) {
+            return operand;
+        }
+
+        return intern(new XOperator(operand));
+    }
+
+    Formula until(Formula left, Formula right) {
+        if (right instanceof BooleanConstant || left == BooleanConstant.FALSE) {
+            return right;
+        }
+
+        if (left == BooleanConstant.TRUE) {
+            return eventually(right);
+        }
+
+        return intern(new UOperator(left, right));
+    }
+
+    Formula weakUntil(Formula left, Formula right) {
+        if (right == BooleanConstant.TRUE || left == BooleanConstant.TRUE) {
+            return BooleanConstant.TRUE;
+        }
+
+        if (left == BooleanConstant.FALSE) {
+            return right;
+        }
+
+        if (right == BooleanConstant.FALSE) {
+            return globally(left);
+        }
+
+        return intern(new WOperator(left, right));
+    }
+
+    Formula strongRelease(Formula left, Formula right) {
+        if (right == BooleanConstant.FALSE || left == BooleanConstant.FALSE) {
+            return BooleanConstant.FALSE;
+        }
+
+        if (left == BooleanConstant.TRUE) {
+            return right;
+        }
+
+        if (right == BooleanConstant.TRUE) {
+            return eventually(left);
+        }
+
+        return intern(new MOperator(left, right));
+    }
+
+    Formula release(Formula left, Formula right) {
+        if (right instanceof BooleanConstant || left == BooleanConstant.TRUE) {
+            return right;
+        }
+
+        if (left == BooleanConstant.FALSE) {
+            return globally(right);
+        }
+
+        return intern(new ROperator(left, right));
+    }
+
+    int size() {
+        return formulas.size();
+    }
+}
@@ -0,0 +1,165 @@
+package com.rebeca;
+
+import owl.ltl.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Prints formulas directly to an {@link Appendable}.
+ * Atomic propositions are printed by name, and quoted if the name is not a plain identifier, so
+ * the output can be parsed again by Owl. The formula is walked with an explicit stack and every
+ * token is appended as it is reached, without formatting intermediate strings.
+ */
+public final class FormulaPrinter {
+
+    private FormulaPrinter() {
+    }
+
+    /**
+     * Append the formula to a string builder.
+     *
+     * @param formula the formula to print
+     * @param builder the builder to append to
+     * @return the builder
+     */
+    public static StringBuilder print(LabelledFormula formula, StringBuilder builder) {
+        try {
+            print(formula, (Appendable) builder);
+        } catch (IOException ex) {
+            // StringBuilder does not throw.
+            throw new UncheckedIOException(ex);
+        }
+
+        return builder;
+    }
+
+    /**
+     * Append the formula to an appendable.
+     *
+     * @param formula the formula to print
+     * @param out the appendable to print to
+     */
+    public static void print(LabelledFormula formula, Appendable out) throws IOException {
+        List<String> names = formula.atomicPropositions();
+        Deque<Object> pending = new ArrayDeque<>();
+        pending.push(formula.formula());
+
+        while (!pending.isEmpty()) {
+            Object next = pending.pop();
+
+            if (next instanceof String) {
+                out.append((String) next);
+            } else if (next instanceof BooleanConstant) {
+                out.append(next == BooleanConstant.TRUE ? "true" : "false");
+            } else if (next instanceof Literal) {
+                Literal literal = (Literal) next;
+                if (literal.getAtom() >= names.size()) {
+                    literal.appendTo(out);
+                } else {
+                    if (literal.isNegated()) {
+                        out.append('!');
+                    }
+                    appendName(names.get(literal.getAtom()), out);
+                }
+            } else if (next instanceof Conjunction) {
+                pushOperands((Formula) next, " & ", pending, out);
+            } else if (next instanceof Disjunction) {
+                pushOperands((Formula) next, " | ", pending, out);
+            } else if (next instanceof Biconditional) {
+                pushOperands((Formula) next, " <-> ", pending, out);
+            } else if (next instanceof UOperator) {
+                pushOperands((Formula) next, " U ", pending, out);
+            } else if (next instanceof WOperator) {
+                pushOperands((Formula) next, " W ", pending, out);
+            } else if (next instanceof MOperator) {
+                pushOperands((Formula) next, " M ", pending, out);
+            } else if (next instanceof ROperator) {
+                pushOperands((Formula) next, " R ", pending, out);
+            } else if (next instanceof Negation) {
+                pushOperand((Formula) next, "!", pending, out);
+            } else if (next instanceof GOperator) {
+                pushOperand((Formula) next, "G", pending, out);
+            } else if (next instanceof FOperator) {
+                pushOperand((Formula) next, "F", pending, out);
+            } else if (next instanceof XOperator) {
+                pushOperand((Formula) next, "X", pending, out);
+            } else {
+                // Operators this printer does not know are printed by Owl itself.
+                out.append(LabelledFormula.of((Formula) next, names).toString());
+            }
+        }
+    }
+
+    /**
+     * Print "(a op b op c)" for an operator with any number of operands.
+     */
+    private static void pushOperands(Formula formula, String operator, Deque<Object> pending, Appendable out)
+            throws IOException {
+        List<Formula> operands = formula.operands;
+        out.append('(');
+        pending.push(")");
+
+        for (int i = operands.size() - 1; i >= 0; i--) {
+            pending.push(operands.get(i));
+            if (i > 0) {
+                pending.push(operator);
+            }
+        }
+    }
+
+    /**
+     * Print "op(a)" for a unary operator.
+     */
+    private static void pushOperand(Formula formula, String operator, Deque<Object> pending, Appendable out)
+            throws IOException {
+        out.append(operator).append('(');
+        pending.push(")");
+        pending.push(formula.operands.get(0));
+    }
+
+    private static void appendName(String name, Appendable out) throws IOException {
+        if (isIdentifier(name)) {
+            out.append(name);
+            return;
+        }
+
+        out.append('"');
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    private static boolean isIdentifier(String name) {
+        if (name.isEmpty() || !Character.isLetter(name.charAt(0)) || isReserved(name)) {
+            return false;
+        }
+
+        for (int i = 1; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isReserved(String name) {
+        switch (name) {
+            case "G": case "F": case "X": case "U": case "W": case "M": case "R":
+            case "true": case "false": case "tt": case "ff":
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.rebeca;
+
+import org.rebecalang.compiler.modelcompiler.SymbolTable;
+import org.rebecalang.compiler.modelcompiler.corerebeca.objectmodel.RebecaModel;
+import org.rebecalang.compiler.utils.CoreVersion;
+import org.rebecalang.compiler.utils.Pair;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * On-disk snapshots of compiled Rebeca models.
+ * A snapshot holds the {@link RebecaModel} and {@link SymbolTable} of a model file in Java's
+ * binary serialisation format and is named after the hash of the file content and the
+ * {@link CoreVersion}, so a changed model or language version never hits a stale snapshot.
+ * Property files are compiled against the symbols of the compiler context, hence the symbol table
+ * of a snapshot is restored into the context that compiles the properties. Snapshots are only read
+ * when a model is requested, only classes of the compiler's object model and of java.util are
+ * deserialised, and snapshots are replaced atomically.
+ */
+public final class ModelSnapshotStore {
+
+    private static final int FORMAT = 2;
+    private static final String SUFFIX = ".snapshot";
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // Snapshot directories may be shared, hence nothing outside the compiler's object model and the
+    // plain collections is instantiated while reading them.
+    private static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter(
+            "maxdepth=10000;org.rebecalang.**;java.lang.*;java.util.*;!*");
+
+    private final Path directory;
+
+    // Set once the compiler's object model turns out not to be serialisable or restorable.
+    private volatile boolean disabled = false;
+
+    public ModelSnapshotStore(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    /**
+     * Return the snapshot of the model, restored into the compiler context, or compile the model in
+     * the context and store a snapshot of the result.
+     *
+     * @param compiler the context the properties of the model are compiled in
+     * @param model the model file
+     * @param version the Rebeca language version the model is compiled with
+     * @param compile compiles the model in the context if no snapshot is available
+     * @return the compiled model and its symbol table
+     */
+    public Pair<RebecaModel, SymbolTable> load(
+            RebecaCompilerPool.Lease compiler, Path model, CoreVersion version,
+            Supplier<Pair<RebecaModel, SymbolTable>> compile) throws IOException {
+
+        if (disabled) {
+            return compile.get();
+        }
+
+        Path snapshot = directory.resolve(key(model, version) + SUFFIX);
+        Pair<RebecaModel, SymbolTable> result = read(snapshot);
+
+        if (result != null) {
+            try {
+                compiler.restore(result.getSecond());
+                return result;
+            } catch (RuntimeException ex) {
+                disabled = true;
+                System.err.println("Model snapshots are disabled, since the symbols of a snapshot "
+                        + "cannot be restored: " + ex.getMessage());
+                return compile.get();
+            }
+        }
+
+        result = compile.get();
+        write(snapshot, result);
+        return result;
+    }
+
+    private static String key(Path model, CoreVersion version) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((FORMAT + "\n" + version + "\n").getBytes(StandardCharsets.UTF_8));
+            digest.update(Files.readAllBytes(model));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static Pair<RebecaModel, SymbolTable> read(Path snapshot) {
+        try (var input = new ObjectInputStream(
+                new BufferedInputStream(Files.newInputStream(snapshot), BUFFER_SIZE))) {
+            input.setObjectInputFilter(FILTER);
+
+            if (input.readInt() != FORMAT) {
+                return null;
+            }
+
+            var rebecaModel = (RebecaModel) input.readObject();
+            var symbolTable = (SymbolTable) input.readObject();
+            return new Pair<>(rebecaModel, symbolTable);
+        } catch (NoSuchFileException ex) {
+            return null;
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+            // Snapshots written by an incompatible compiler version, truncated files and classes
+            // rejected by the filter.
+            System.err.println("Ignoring unreadable model snapshot " + snapshot + ": " + ex.getMessage());
+            return null;
+        }
+    }
+
+    private void write(Path snapshot, Pair<RebecaModel, SymbolTable> result) {
+        Path temporary = null;
+
+        try {
+            temporary = Files.createTempFile(directory, snapshot.getFileName().toString(), ".tmp");
+
+            try (var output = new ObjectOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE))) {
+                output.writeInt(FORMAT);
+                output.writeObject(result.getFirst());
+                output.writeObject(result.getSecond());
+            }
+
+            try {
+                Files.move(temporary, snapshot,
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            temporary = null;
+        } catch (NotSerializableException | InvalidClassException ex) {
+            disabled = true;
+            System.err.println("Model snapshots are disabled, since the compiled model cannot be "
+                    + "serialised: " + ex.getMessage());
+        } catch (IOException ex) {
+            System.err.println("Could not write model snapshot " + snapshot + ": " + ex.getMessage());
+        } finally {
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException ignored) {
+                    // Nothing left to do.
+                }
+            }
+        }
+    }
+}
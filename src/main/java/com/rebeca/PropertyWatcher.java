@@ -0,0 +1,305 @@
+package com.rebeca;
+
+import org.rebecalang.compiler.modelcompiler.corerebeca.objectmodel.*;
+import org.rebecalang.compiler.propertycompiler.corerebeca.objectmodel.LTLDefinition;
+import org.rebecalang.compiler.propertycompiler.corerebeca.objectmodel.PropertyModel;
+import org.rebecalang.compiler.propertycompiler.generalrebeca.objectmodel.Definition;
+import owl.ltl.LabelledFormula;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a Rebeca model and its property files and re-converts only the definitions that changed.
+ * The compiled model is kept in memory, together with the compiler context holding its symbols,
+ * and is only recompiled if the model file itself changes. For every definition a structural
+ * fingerprint of its expression is remembered; after a property file is modified, only definitions
+ * with a new fingerprint are converted and handed to the listener.
+ */
+public final class PropertyWatcher {
+
+    // Coalesce the burst of events editors produce when saving a file.
+    private static final long SETTLE_MILLIS = 100;
+
+    // Stands for a missing subexpression on the fingerprint stack, which cannot hold null.
+    private static final Object NULL_EXPRESSION = new Object();
+
+    /**
+     * Receives the formulas of changed definitions.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void changed(Path propertyFile, String definitionName, LabelledFormula formula) throws Exception;
+    }
+
+    private final Path model;
+    private final List<Path> properties;
+    private final Set<RebecaExpressionConverter.Option> options;
+    private final Listener listener;
+
+    // Holds the symbols of the model, which the property compiler resolves names against.
+    private RebecaCompilerPool.Lease compiler;
+    private RebecaModel rebecaModel;
+    private final Map<Path, Map<String, String>> fingerprints = new HashMap<>();
+    // Property files modified while the model does not compile.
+    private final Set<Path> pending = new HashSet<>();
+
+    /**
+     * Create a watcher.
+     *
+     * @param options the optional conversion steps, the same as for the initial conversion
+     */
+    public PropertyWatcher(Path model, List<Path> properties, Set<RebecaExpressionConverter.Option> options,
+                           Listener listener) {
+        this.model = model.toAbsolutePath().normalize();
+        this.properties = properties.stream().map(path -> path.toAbsolutePath().normalize()).toList();
+        this.options = Set.copyOf(options);
+        this.listener = listener;
+    }
+
+    /**
+     * Remember the current state of all files and then process modifications until the thread is
+     * interrupted. Definitions that are unchanged since the call are not reported.
+     */
+    public void watch() throws Exception {
+        try (var lease = RebecaCompilerPool.shared().acquire();
+             WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            compiler = lease;
+            rebecaModel = Rebeca.compileModel(compiler, model.toFile()).getFirst();
+
+            for (Path property : properties) {
+                update(property, false);
+            }
+
+            Set<Path> directories = new LinkedHashSet<>();
+            directories.add(model.getParent());
+            properties.forEach(property -> directories.add(property.getParent()));
+
+            for (Path directory : directories) {
+                directory.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+
+            while (!Thread.currentThread().isInterrupted()) {
+                Set<Path> modified = new HashSet<>();
+                WatchKey key = watchService.take();
+
+                while (key != null) {
+                    collect(key, modified);
+                    key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+
+                for (Path property : properties) {
+                    if (modified.contains(property)) {
+                        pending.add(property);
+                    }
+                }
+
+                if (modified.contains(model)) {
+                    System.err.println("Model " + model + " changed, recompiling.");
+                    try {
+                        rebecaModel = Rebeca.compileModel(compiler, model.toFile()).getFirst();
+                    } catch (RebecaTranslationException ex) {
+                        // The context no longer holds the symbols of the previous model, so the
+                        // properties wait until the model compiles again.
+                        System.err.println(ex.getMessage());
+                        rebecaModel = null;
+                    }
+
+                    if (rebecaModel != null) {
+                        fingerprints.clear();
+                        pending.addAll(properties);
+                    }
+                }
+
+                if (rebecaModel == null) {
+                    continue;
+                }
+
+                for (Path property : properties) {
+                    if (pending.remove(property)) {
+                        update(property, true);
+                    }
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void collect(WatchKey key, Set<Path> modified) {
+        Path directory = (Path) key.watchable();
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.context() instanceof Path file) {
+                modified.add(directory.resolve(file).toAbsolutePath().normalize());
+            }
+        }
+
+        key.reset();
+    }
+
+    private void update(Path property, boolean notify) throws Exception {
+        if (rebecaModel == null) {
+            return;
+        }
+
+        PropertyModel propertyModel;
+
+        try {
+            propertyModel = Rebeca.compileProperty(compiler, property.toFile(), rebecaModel);
+        } catch (RuntimeException ex) {
+            // Intermediate states while editing are expected to be broken.
+            System.err.println("Could not compile " + property + ": " + ex.getMessage());
+            return;
+        }
+
+        if (propertyModel == null) {
+            return;
+        }
+
+        Map<String, String> previous = fingerprints.getOrDefault(property, Map.of());
+        Map<String, String> current = new HashMap<>();
+        List<Definition> changedDefinitions = new ArrayList<>();
+        List<LTLDefinition> changedLtlDefinitions = new ArrayList<>();
+
+        if (propertyModel.getDefinitions() != null) {
+            for (Definition definition : propertyModel.getDefinitions()) {
+                String fingerprint = fingerprint(definition.getExpression());
+                current.put("define " + definition.getName(), fingerprint);
+
+                if (fingerprint == null
+                        || !fingerprint.equals(previous.get("define " + definition.getName()))) {
+                    changedDefinitions.add(definition);
+                }
+            }
+        }
+
+        if (propertyModel.getLTLDefinitions() != null) {
+            for (LTLDefinition definition : propertyModel.getLTLDefinitions()) {
+                String fingerprint = fingerprint(definition.getExpression());
+                current.put("LTL " + definition.getName(), fingerprint);
+
+                if (fingerprint == null
+                        || !fingerprint.equals(previous.get("LTL " + definition.getName()))) {
+                    changedLtlDefinitions.add(definition);
+                }
+            }
+        }
+
+        fingerprints.put(property, current);
+
+        boolean inlineDefines = options.contains(RebecaExpressionConverter.Option.INLINE_DEFINES);
+
+        // Inlined defines are part of every formula that refers to them.
+        if (inlineDefines && !changedDefinitions.isEmpty() && propertyModel.getLTLDefinitions() != null) {
+            changedLtlDefinitions = new ArrayList<>(propertyModel.getLTLDefinitions());
+        }
+
+        if (!notify || changedDefinitions.isEmpty() && changedLtlDefinitions.isEmpty()) {
+            return;
+        }
+
+        List<String> names = new ArrayList<>();
+        List<LabelledFormula> formulas = new ArrayList<>();
+
+        // The same optional steps as the initial conversion, e.g. the invariants of
+        // --domain-constraints.
+        var converter = Rebeca.converter(propertyModel, rebecaModel, options);
+
+        for (Definition definition : changedDefinitions) {
+            names.add(definition.getName());
+            formulas.add(converter.convertDefinitionToLabelledFormula(definition));
+        }
+
+        for (LTLDefinition definition : changedLtlDefinitions) {
+            names.add(definition.getName());
+            formulas.add(converter.convertLtlDefinitionToLabelledFormula(definition));
+        }
+
+        for (int i = 0; i < formulas.size(); i++) {
+            listener.changed(property, names.get(i), formulas.get(i));
+        }
+    }
+
+    /**
+     * Structural fingerprint of an expression that ignores source positions, or null if the
+     * expression contains a node type whose structure is not known, in which case it is always
+     * treated as changed. The expression is walked with an explicit stack, since generated
+     * expressions can be nested too deeply for the stack of the watching thread.
+     */
+    static String fingerprint(Expression expression) {
+        StringBuilder builder = new StringBuilder();
+        Deque<Object> tasks = new ArrayDeque<>();
+        tasks.push(expression == null ? NULL_EXPRESSION : expression);
+
+        while (!tasks.isEmpty()) {
+            Object next = tasks.pop();
+
+            if (next instanceof String token) {
+                builder.append(token);
+            } else if (next == NULL_EXPRESSION) {
+                builder.append("null");
+            } else if (next instanceof BinaryExpression binary) {
+                push(tasks, "(B " + binary.getOperator() + ' ', binary.getLeft(), " ", binary.getRight(), ")");
+            } else if (next instanceof UnaryExpression unary) {
+                push(tasks, "(U " + unary.getOperator() + ' ', unary.getExpression(), ")");
+            } else if (next instanceof TernaryExpression ternary) {
+                push(tasks, "(T ", ternary.getCondition(), " ", ternary.getLeft(), " ", ternary.getRight(), ")");
+            } else if (next instanceof DotPrimary dot) {
+                push(tasks, "(D ", dot.getLeft(), " ", dot.getRight(), ")");
+            } else if (next instanceof TermPrimary term) {
+                List<Object> parts = new ArrayList<>();
+                parts.add("(P " + term.getName());
+
+                if (term.getIndices() != null) {
+                    for (Expression index : term.getIndices()) {
+                        parts.addAll(Arrays.asList(" [", index, "]"));
+                    }
+                }
+
+                if (term.getParentSuffixPrimary() != null
+                        && term.getParentSuffixPrimary().getArguments() != null) {
+                    for (Expression argument : term.getParentSuffixPrimary().getArguments()) {
+                        parts.addAll(Arrays.asList(" (", argument, ")"));
+                    }
+                }
+
+                parts.add(")");
+                push(tasks, parts.toArray());
+            } else if (next instanceof Literal literal) {
+                builder.append("(L ").append(Objects.toString(literal.getLiteralValue())).append(')');
+            } else {
+                return null;
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Push the parts so that they are popped from left to right.
+     */
+    private static void push(Deque<Object> tasks, Object... parts) {
+        for (int i = parts.length - 1; i >= 0; i--) {
+            tasks.push(parts[i] == null ? NULL_EXPRESSION : parts[i]);
+        }
+    }
+}
@@ -1,10 +1,8 @@
 package com.rebeca;
 
-import org.rebecalang.compiler.CompilerConfig;
-import org.rebecalang.compiler.modelcompiler.RebecaModelCompiler;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.rebecalang.compiler.modelcompiler.SymbolTable;
 import org.rebecalang.compiler.modelcompiler.corerebeca.objectmodel.RebecaModel;
-import org.rebecalang.compiler.propertycompiler.PropertyCompiler;
 import org.rebecalang.compiler.propertycompiler.corerebeca.objectmodel.LTLDefinition;
 import org.rebecalang.compiler.propertycompiler.corerebeca.objectmodel.PropertyModel;
 import org.rebecalang.compiler.propertycompiler.generalrebeca.objectmodel.Definition;
@@ -12,77 +10,288 @@ import org.rebecalang.compiler.utils.CompilerExtension;
 import org.rebecalang.compiler.utils.CoreVersion;
 import org.rebecalang.compiler.utils.ExceptionContainer;
 import org.rebecalang.compiler.utils.Pair;
-import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import owl.command.WorkerPool;
 import owl.ltl.LabelledFormula;
 
+import javax.annotation.Nullable;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 
 public class Rebeca {
 
     public static Stream<LabelledFormula> rebecaToLTL(String rebeceFilePath, String propertyFilePath, Boolean print) {
-        try (var ctx = new AnnotationConfigApplicationContext(CompilerConfig.class)) {
-            RebecaModelCompiler modelCompiler = ctx.getBean(RebecaModelCompiler.class);
-            PropertyCompiler propertyCompiler = ctx.getBean(PropertyCompiler.class);
-            ExceptionContainer exceptions = ctx.getBean(ExceptionContainer.class);
+        return rebecaToLTL(rebeceFilePath, List.of(propertyFilePath), print);
+    }
 
+    /**
+     * Compile a Rebeca model once and convert the definitions of several property files against it.
+     * The property files are compiled in the compiler context of the model and converted
+     * concurrently; the resulting formulas are returned in the order of the property files and of
+     * the definitions within each file.
+     *
+     * @param rebeceFilePath the Rebeca model
+     * @param propertyFilePaths the property files referring to the model
+     * @param print whether to print the compiled property models and the resulting formulas
+     * @return the formulas of all property files
+     */
+    public static Stream<LabelledFormula> rebecaToLTL(String rebeceFilePath, List<String> propertyFilePaths, Boolean print) {
+        return rebecaToLTL(rebeceFilePath, propertyFilePaths, print, Set.of());
+    }
 
-            File model = new File(rebeceFilePath);
-            File property = new File(propertyFilePath);
+    /**
+     * Like {@link #rebecaToLTL(String, List, Boolean)}, but with optional
+     * conversion steps, e.g. expanding defines into Boolean combinations of the state variables they
+     * are defined over.
+     *
+     * @param options the optional conversion steps
+     */
+    public static Stream<LabelledFormula> rebecaToLTL(String rebeceFilePath, List<String> propertyFilePaths, Boolean print,
+                                                      Set<RebecaExpressionConverter.Option> options) {
+        return rebecaToLTL(rebeceFilePath, propertyFilePaths, print, null, options);
+    }
 
-            Set<CompilerExtension> extension = new HashSet<>();
-            Pair<RebecaModel, SymbolTable> modelCompilationResult = modelCompiler.compileRebecaFile(model, extension, CoreVersion.CORE_2_0);
+    /**
+     * Like {@link #rebecaToLTL(String, List, Boolean, Set)}, but reuses snapshots of the compiled
+     * model.
+     *
+     * @param snapshots the snapshot store, or null to always compile the model
+     */
+    public static Stream<LabelledFormula> rebecaToLTL(String rebeceFilePath, List<String> propertyFilePaths, Boolean print,
+                                                      @Nullable ModelSnapshotStore snapshots,
+                                                      Set<RebecaExpressionConverter.Option> options) {
+        try {
+            // Definitions that cannot be converted are reported and skipped.
+            List<LabelledFormula> labelledFormulas = convert(rebeceFilePath, propertyFilePaths, print, snapshots, options, true);
 
-            PropertyModel propertyModel = (PropertyModel) propertyCompiler.compilePropertyFile(property, modelCompilationResult.getFirst(), extension);
+            // Commands writing automata to stdout do not set print.
+            if (Boolean.TRUE.equals(print))
+                printFormulas(labelledFormulas);
+
+            return labelledFormulas.stream();
+
+        } catch (Exception e) {
+            System.err.println("Error in rebecaToLTL: " + e.getMessage());
+            e.printStackTrace();
+            return Stream.empty();
+        }
+    }
 
-            if(print)
-                RebecaPropertyPrinter.printDetailedPropertyModelInformation(propertyModel);
+    /**
+     * Compile the model and convert the property files, reporting failures to the caller instead of
+     * printing them.
+     *
+     * @throws RebecaTranslationException if a definition cannot be converted
+     */
+    static List<LabelledFormula> convert(String rebeceFilePath, List<String> propertyFilePaths, Boolean print,
+                                         @Nullable ModelSnapshotStore snapshots,
+                                         Set<RebecaExpressionConverter.Option> options) throws Exception {
+        return convert(rebeceFilePath, propertyFilePaths, print, snapshots, options, false);
+    }
 
-            // Reset atomic propositions for fresh conversion
-            RebecaExpressionConverter.resetAtomicPropositions();
+    private static List<LabelledFormula> convert(String rebeceFilePath, List<String> propertyFilePaths, Boolean print,
+                                                 @Nullable ModelSnapshotStore snapshots,
+                                                 Set<RebecaExpressionConverter.Option> options,
+                                                 boolean skipBrokenDefinitions) throws Exception {
+        File model = new File(rebeceFilePath);
+        RebecaModel rebecaModel;
+        List<PropertyModel> propertyModels = new ArrayList<>(propertyFilePaths.size());
 
-            // Convert PropertyModel definitions directly to LabelledFormulas
-            List<LabelledFormula> labelledFormulas = new ArrayList<>();
+        // The property compiler resolves names through the symbols its context collected while
+        // compiling the model, hence the model and its properties are compiled in one context.
+        try (var compiler = RebecaCompilerPool.shared().acquire()) {
+            rebecaModel = (snapshots == null
+                    ? compileModel(compiler, model)
+                    : snapshots.load(compiler, model.toPath(), CoreVersion.CORE_2_0, () -> compileModel(compiler, model)))
+                    .getFirst();
 
-            if (propertyModel.getDefinitions() != null) {
-                for (Definition definition : propertyModel.getDefinitions()) {
-                    try {
-                        LabelledFormula labelledFormula = RebecaExpressionConverter.convertDefinitionToLabelledFormula(definition);
-                        labelledFormulas.add(labelledFormula);
-                        // System.out.println("Converted definition '" + definition.getName() + "' to formula: " + labelledFormula.formula());
-                    } catch (Exception e) {
-                        System.err.println("Error converting definition '" + definition.getName() + "': " + e.getMessage());
-                        e.printStackTrace();
-                    }
-                }
+            for (String propertyFilePath : propertyFilePaths) {
+                propertyModels.add(compileProperty(compiler, new File(propertyFilePath), rebecaModel));
             }
-            if (propertyModel.getLTLDefinitions() != null) {
-                for (LTLDefinition definition : propertyModel.getLTLDefinitions()) {
-                    try {
-                        LabelledFormula labelledFormula = RebecaExpressionConverter.convertLtlDefinitionToLabelledFormula(definition);
-                        labelledFormulas.add(labelledFormula);
-                        // System.out.println("Converted definition '" + definition.getName() + "' to formula: " + labelledFormula.formula());
-                    } catch (Exception e) {
-                        System.err.println("Error converting definition '" + definition.getName() + "': " + e.getMessage());
-                        e.printStackTrace();
+        }
+
+        List<PropertyConversion> conversions = convertProperties(rebecaModel, propertyModels, options, skipBrokenDefinitions);
+
+        List<LabelledFormula> labelledFormulas = new ArrayList<>();
+
+        for (PropertyConversion conversion : conversions) {
+            if (Boolean.TRUE.equals(print))
+                RebecaPropertyPrinter.printDetailedPropertyModelInformation(conversion.propertyModel());
+
+            labelledFormulas.addAll(conversion.formulas());
+        }
+
+        return labelledFormulas;
+    }
+
+    /**
+     * Print one formula per line, buffered and without building a string per formula
+     */
+    private static void printFormulas(List<LabelledFormula> labelledFormulas) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, Charset.defaultCharset()));
+
+        for (LabelledFormula labelledFormula : labelledFormulas) {
+            FormulaPrinter.print(labelledFormula, out);
+            out.append(System.lineSeparator());
+        }
+
+        // System.out stays open for the caller.
+        out.flush();
+    }
+
+    /**
+     * Compile a model in the given compiler context.
+     *
+     * @throws RebecaTranslationException if the compiler reports errors
+     */
+    static Pair<RebecaModel, SymbolTable> compileModel(RebecaCompilerPool.Lease compiler, File model) {
+        compiler.exceptions().clear();
+        Set<CompilerExtension> extension = new HashSet<>();
+        Pair<RebecaModel, SymbolTable> result =
+                compiler.modelCompiler().compileRebecaFile(model, extension, CoreVersion.CORE_2_0);
+        checkErrors(compiler, model);
+        return result;
+    }
+
+    /**
+     * Compile a property file in the context that compiled its model.
+     *
+     * @throws RebecaTranslationException if the compiler reports errors
+     */
+    static PropertyModel compileProperty(RebecaCompilerPool.Lease compiler, File property, RebecaModel rebecaModel) {
+        compiler.exceptions().clear();
+        Set<CompilerExtension> extension = new HashSet<>();
+        var propertyModel = (PropertyModel) compiler.propertyCompiler().compilePropertyFile(property, rebecaModel, extension);
+        checkErrors(compiler, property);
+        return propertyModel;
+    }
+
+    private static void checkErrors(RebecaCompilerPool.Lease compiler, File file) {
+        ExceptionContainer exceptions = compiler.exceptions();
+
+        if (exceptions.exceptionsExist()) {
+            throw new RebecaTranslationException("Compilation of " + file + " failed: " + exceptions.getExceptions());
+        }
+    }
+
+    private record PropertyConversion(PropertyModel propertyModel, List<LabelledFormula> formulas) {
+    }
+
+    /**
+     * Convert the property models concurrently. Every property model is converted with its own
+     * converter, hence no state is shared between the workers.
+     */
+    private static List<PropertyConversion> convertProperties(RebecaModel rebecaModel,
+                                                              List<PropertyModel> propertyModels,
+                                                              Set<RebecaExpressionConverter.Option> options,
+                                                              boolean skipBrokenDefinitions)
+            throws Exception {
+        if (propertyModels.size() == 1) {
+            PropertyModel propertyModel = propertyModels.get(0);
+            return List.of(new PropertyConversion(propertyModel,
+                    convertPropertyModel(propertyModel, rebecaModel, options, skipBrokenDefinitions)));
+        }
+
+        ExecutorService executor = WorkerPool.workers(Runtime.getRuntime().availableProcessors());
+        List<Future<PropertyConversion>> futures = new ArrayList<>(propertyModels.size());
+
+        try {
+            for (PropertyModel propertyModel : propertyModels) {
+                futures.add(executor.submit(() -> new PropertyConversion(
+                        propertyModel, convertPropertyModel(propertyModel, rebecaModel, options, skipBrokenDefinitions))));
+            }
+
+            List<PropertyConversion> conversions = new ArrayList<>(futures.size());
+
+            for (Future<PropertyConversion> future : futures) {
+                try {
+                    conversions.add(Uninterruptibles.getUninterruptibly(future));
+                } catch (ExecutionException ex) {
+                    if (ex.getCause() instanceof Exception cause) {
+                        throw cause;
                     }
+
+                    throw ex;
                 }
             }
-            labelledFormulas.forEach(System.out::println);
 
+            return conversions;
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
 
+    /**
+     * A converter for the definitions of a property model with the given optional steps, resolving
+     * state variables against the model.
+     */
+    static RebecaExpressionConverter converter(PropertyModel propertyModel, RebecaModel rebecaModel,
+                                               Set<RebecaExpressionConverter.Option> options) {
+        var converter = new RebecaExpressionConverter();
+        converter.resolveAgainst(rebecaModel);
 
-            return labelledFormulas.stream();
+        if (options.contains(RebecaExpressionConverter.Option.INLINE_DEFINES) && propertyModel.getDefinitions() != null) {
+            converter.inlineDefines(propertyModel.getDefinitions());
+        }
 
-        } catch (Exception e) {
-            System.err.println("Error in rebecaToLTL: " + e.getMessage());
-            e.printStackTrace();
-            return Stream.empty();
+        if (options.contains(RebecaExpressionConverter.Option.DOMAIN_CONSTRAINTS)) {
+            converter.enableDomainConstraints();
         }
+
+        return converter;
     }
 
+    private static List<LabelledFormula> convertPropertyModel(PropertyModel propertyModel, RebecaModel rebecaModel,
+                                                              Set<RebecaExpressionConverter.Option> options,
+                                                              boolean skipBrokenDefinitions) {
+        // Fresh atomic propositions for every property model
+        var converter = converter(propertyModel, rebecaModel, options);
+
+        List<LabelledFormula> labelledFormulas = new ArrayList<>();
+
+        if (propertyModel.getDefinitions() != null) {
+            for (Definition definition : propertyModel.getDefinitions()) {
+                try {
+                    LabelledFormula labelledFormula = converter.convertDefinitionToLabelledFormula(definition);
+                    labelledFormulas.add(labelledFormula);
+                    // System.out.println("Converted definition '" + definition.getName() + "' to formula: " + labelledFormula.formula());
+                } catch (Exception e) {
+                    brokenDefinition(definition.getName(), e, skipBrokenDefinitions);
+                }
+            }
+        }
+        if (propertyModel.getLTLDefinitions() != null) {
+            for (LTLDefinition definition : propertyModel.getLTLDefinitions()) {
+                try {
+                    LabelledFormula labelledFormula = converter.convertLtlDefinitionToLabelledFormula(definition);
+                    labelledFormulas.add(labelledFormula);
+                    // System.out.println("Converted definition '" + definition.getName() + "' to formula: " + labelledFormula.formula());
+                } catch (Exception e) {
+                    brokenDefinition(definition.getName(), e, skipBrokenDefinitions);
+                }
+            }
+        }
+
+        return labelledFormulas;
+    }
+
+    private static void brokenDefinition(String name, Exception e, boolean skip) {
+        if (!skip) {
+            throw new RebecaTranslationException("Conversion of definition '" + name + "' failed: " + e.getMessage(), e);
+        }
+
+        System.err.println("Error converting definition '" + name + "': " + e.getMessage());
+        e.printStackTrace();
+    }
 }
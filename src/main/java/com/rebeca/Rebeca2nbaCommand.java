@@ -13,6 +13,7 @@ import owl.thirdparty.picocli.CommandLine.Command;
                 "Usage Examples:",
                 "  owl rebeca2nba ",
                 "  owl rebeca2nba -i model-input-file -i property-input-file -p true",
+                "  owl rebeca2nba -i model-input-file -i property-file-1 -i property-file-2",
                 MiscCommands.BibliographyCommand.HOW_TO_USE
         }
 )
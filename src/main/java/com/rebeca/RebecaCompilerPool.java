@@ -0,0 +1,141 @@
+package com.rebeca;
+
+import org.rebecalang.compiler.CompilerConfig;
+import org.rebecalang.compiler.modelcompiler.RebecaModelCompiler;
+import org.rebecalang.compiler.modelcompiler.SymbolTable;
+import org.rebecalang.compiler.propertycompiler.PropertyCompiler;
+import org.rebecalang.compiler.utils.ExceptionContainer;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Pool of bootstrapped Rebeca compiler contexts.
+ * Creating an {@link AnnotationConfigApplicationContext} for {@link CompilerConfig} scans the
+ * classpath and wires all compiler beans, which dominates the cost of compiling small models.
+ * The pool creates contexts lazily and hands each one out to a single caller at a time, since the
+ * compiler beans share one {@link ExceptionContainer} per context. The container is cleared
+ * whenever a context is handed out, so every caller only sees the errors of its own compilation.
+ */
+public final class RebecaCompilerPool {
+
+    private static final RebecaCompilerPool SHARED =
+            new RebecaCompilerPool(Runtime.getRuntime().availableProcessors());
+
+    private final ConcurrentLinkedQueue<AnnotationConfigApplicationContext> idle =
+            new ConcurrentLinkedQueue<>();
+    private final Semaphore permits;
+
+    /**
+     * Exclusive access to one compiler context until the lease is closed.
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final AnnotationConfigApplicationContext context;
+        private boolean closed = false;
+
+        private Lease(AnnotationConfigApplicationContext context) {
+            this.context = context;
+        }
+
+        public RebecaModelCompiler modelCompiler() {
+            return context.getBean(RebecaModelCompiler.class);
+        }
+
+        public PropertyCompiler propertyCompiler() {
+            return context.getBean(PropertyCompiler.class);
+        }
+
+        public ExceptionContainer exceptions() {
+            return context.getBean(ExceptionContainer.class);
+        }
+
+        /**
+         * Replace the symbols of this context with those of a model compiled elsewhere, e.g. a
+         * snapshot, so that properties of the model can be compiled as if this context had compiled
+         * the model itself. The compiler beans keep their reference to the symbol table of the
+         * context, hence its fields are overwritten instead of replacing the bean.
+         */
+        public void restore(SymbolTable symbols) {
+            SymbolTable target = context.getBean(SymbolTable.class);
+
+            ReflectionUtils.doWithFields(SymbolTable.class, field -> {
+                ReflectionUtils.makeAccessible(field);
+                Object value = field.get(symbols);
+
+                if (!Modifier.isFinal(field.getModifiers())) {
+                    field.set(target, value);
+                } else if (value instanceof Map<?, ?> map) {
+                    @SuppressWarnings("unchecked")
+                    var targetMap = (Map<Object, Object>) field.get(target);
+                    targetMap.clear();
+                    targetMap.putAll(map);
+                } else if (value instanceof Collection<?> collection) {
+                    @SuppressWarnings("unchecked")
+                    var targetCollection = (Collection<Object>) field.get(target);
+                    targetCollection.clear();
+                    targetCollection.addAll(collection);
+                } else if (value != null) {
+                    throw new IllegalStateException("Cannot restore the symbol table field " + field.getName());
+                }
+            }, field -> !Modifier.isStatic(field.getModifiers()));
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                idle.add(context);
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Create a pool.
+     *
+     * @param maximumSize the maximal number of contexts that are in use at the same time
+     */
+    public RebecaCompilerPool(int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Pool size must be positive.");
+        }
+
+        this.permits = new Semaphore(maximumSize, true);
+    }
+
+    /**
+     * The pool shared by all conversions of this process.
+     */
+    public static RebecaCompilerPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * Borrow a compiler context, waiting until one is available.
+     *
+     * @return a lease that must be closed to return the context
+     */
+    public Lease acquire() {
+        permits.acquireUninterruptibly();
+
+        try {
+            var context = idle.poll();
+
+            if (context == null) {
+                context = new AnnotationConfigApplicationContext(CompilerConfig.class);
+            }
+
+            context.getBean(ExceptionContainer.class).clear();
+            return new Lease(context);
+        } catch (RuntimeException | Error ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+}
@@ -22,112 +22,379 @@ package com.rebeca;
 import org.rebecalang.compiler.modelcompiler.corerebeca.objectmodel.*;
 import org.rebecalang.compiler.propertycompiler.corerebeca.objectmodel.LTLDefinition;
 import org.rebecalang.compiler.propertycompiler.generalrebeca.objectmodel.Definition;
-import owl.ltl.*;
-import owl.ltl.Literal;
+import owl.ltl.BooleanConstant;
+import owl.ltl.Formula;
+import owl.ltl.LabelledFormula;
 
-import java.util.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
- * Utility class for converting Rebeca expressions to OWL LTL formulas.
+ * Converter from Rebeca expressions to OWL LTL formulas.
  * This class handles the conversion of various Rebeca expression types to their corresponding
- * LTL formula representations in the OWL library.
+ * LTL formula representations in the OWL library. Each converter owns the registry of atomic
+ * propositions it names, so independent converters can be used on different threads at once.
  */
 public final class RebecaExpressionConverter {
-    
-    // Map to store atomic propositions for consistent naming
-    private static Map<String, Integer> atomicPropositionMap = new HashMap<>();
-    private static int atomicPropositionCounter = 0;
 
-    private RebecaExpressionConverter() {
-        // Utility class - prevent instantiation
+    /**
+     * Optional conversion steps.
+     */
+    public enum Option {
+        /** Expand references to defines, see {@link #inlineDefines(Collection)}. */
+        INLINE_DEFINES,
+        /** Relate comparison atoms, see {@link #enableDomainConstraints()}. */
+        DOMAIN_CONSTRAINTS
+    }
+
+    // Stands in for missing subexpressions on the conversion stack, which cannot hold null
+    private static final Object NULL_EXPRESSION = new Object();
+
+    private static final Formula[] NO_OPERANDS = new Formula[0];
+
+    /**
+     * Stack entry that combines the last {@code arity} converted operands of an expression
+     */
+    private record Combine(Expression expression, int arity) {
+    }
+
+    /**
+     * A rebec instance and the declarations of the state variables of its reactive class
+     */
+    private record Instance(MainRebecDefinition declaration, Map<String, VariableDeclarator> stateVariables) {
+    }
+
+    // Registry to store atomic propositions for consistent naming
+    private final AtomicPropositionRegistry atomicPropositions;
+
+    // Numbers the literals of the definition being converted, null outside of definitions
+    private LocalAlphabet alphabet;
+
+    // Defines whose references are replaced by their expressions, and those being expanded
+    private Map<String, Expression> defines = Map.of();
+    private final Set<String> expanding = new HashSet<>();
+
+    // Relations between comparison atoms, null unless domain constraints are enabled
+    private DomainConstraints domainConstraints;
+
+    // Atomic propositions of expression nodes that have been named before
+    private final Map<Expression, Integer> namedExpressions = new IdentityHashMap<>();
+
+    // The rebec instances of the model by name, empty unless resolved against a model
+    private Map<String, Instance> instances = Map.of();
+
+    // Propositions of the state variables of rebec instances, keyed on both declarations
+    private final Map<MainRebecDefinition, Map<VariableDeclarator, Integer>> stateVariables =
+            new IdentityHashMap<>();
+
+    // Shares structurally equal subformulas across all definitions converted by this instance
+    private final FormulaFactory formulas = new FormulaFactory();
+
+    public RebecaExpressionConverter() {
+        this(new AtomicPropositionRegistry());
+    }
+
+    public RebecaExpressionConverter(AtomicPropositionRegistry atomicPropositions) {
+        this.atomicPropositions = atomicPropositions;
+    }
+
+    public AtomicPropositionRegistry atomicPropositions() {
+        return atomicPropositions;
+    }
+
+    /**
+     * Expand references to the given defines into their expressions instead of naming them as
+     * atomic propositions. Formulas are then built over the primitive state variables, so related
+     * propositions share their atoms.
+     *
+     * @param definitions the defines of the property model
+     */
+    public void inlineDefines(Collection<Definition> definitions) {
+        Map<String, Expression> inlined = new HashMap<>();
+        for (Definition definition : definitions) {
+            if (definition.getName() != null && definition.getExpression() != null) {
+                inlined.put(definition.getName(), definition.getExpression());
+            }
+        }
+        defines = inlined;
+    }
+
+    /**
+     * Resolve accesses to state variables of rebec instances, e.g. {@code phil0.eating}, against
+     * the declarations of the model. Their atomic propositions are then identified by the
+     * declarations of the instance and the variable, and named only when the alphabet of a
+     * definition is built. Accesses that do not resolve are named after the expression.
+     *
+     * @param rebecaModel the model the property refers to
+     */
+    public void resolveAgainst(RebecaModel rebecaModel) {
+        RebecaCode code = rebecaModel.getRebecaCode();
+
+        if (code == null || code.getMainDeclaration() == null) {
+            return;
+        }
+
+        Map<String, ReactiveClassDeclaration> classes = new HashMap<>();
+        for (ReactiveClassDeclaration reactiveClass : code.getReactiveClassDeclaration()) {
+            classes.put(reactiveClass.getName(), reactiveClass);
+        }
+
+        Map<String, Instance> resolved = new HashMap<>();
+        for (MainRebecDefinition definition : code.getMainDeclaration().getMainRebecDefinition()) {
+            ReactiveClassDeclaration reactiveClass = classes.get(definition.getType().getTypeName());
+            Map<String, VariableDeclarator> variables = new HashMap<>();
+
+            if (reactiveClass != null) {
+                for (FieldDeclaration field : reactiveClass.getStatevars()) {
+                    for (VariableDeclarator declarator : field.getVariableDeclarators()) {
+                        variables.put(declarator.getVariableName(), declarator);
+                    }
+                }
+            }
+
+            resolved.put(definition.getName(), new Instance(definition, variables));
+        }
+
+        instances = resolved;
+    }
+
+    /**
+     * Conjoin every converted definition with the invariant G(...) that relates its comparison
+     * atoms over the same state variable, e.g. {@code x == 0} and {@code x == 1} exclude each other.
+     * This changes the language of the definition: it only accepts runs that satisfy the invariant,
+     * hence a run violating the invariant is rejected even if it satisfies the definition. Every run
+     * of the model satisfies the invariant, so checking the model against the restricted property
+     * gives the same result.
+     */
+    public void enableDomainConstraints() {
+        if (domainConstraints == null) {
+            domainConstraints = new DomainConstraints();
+        }
     }
     
     /**
      * Main conversion method for Rebeca Expression to Owl Formula
+     * The expression tree is walked with an explicit stack, so deeply nested generated properties
+     * do not overflow the call stack.
      * 
      * @param expression the Rebeca expression to convert
      * @return the corresponding OWL Formula
      */
-    public static Formula convertToFormula(Expression expression) {
-        if (expression == null) {
-            return BooleanConstant.FALSE;
+    public Formula convertToFormula(Expression expression) {
+        Deque<Object> tasks = new ArrayDeque<>();
+        Deque<Formula> results = new ArrayDeque<>();
+        tasks.push(expression == null ? NULL_EXPRESSION : expression);
+        // Left over if a previous conversion failed half-way
+        expanding.clear();
+
+        while (!tasks.isEmpty()) {
+            Object task = tasks.pop();
+
+            if (task == NULL_EXPRESSION) {
+                results.push(BooleanConstant.FALSE);
+            } else if (task instanceof Combine) {
+                // All operands of the expression have been converted, combine them
+                Combine combine = (Combine) task;
+                Formula[] operands = new Formula[combine.arity()];
+                for (int i = operands.length - 1; i >= 0; i--) {
+                    operands[i] = results.pop();
+                }
+                results.push(convert(combine.expression(), operands));
+            } else {
+                Expression expr = (Expression) task;
+                List<Expression> operands = operandsOf(expr);
+
+                if (operands.isEmpty()) {
+                    results.push(convert(expr, NO_OPERANDS));
+                } else {
+                    // Operands are pushed in reverse, so they are converted from left to right
+                    tasks.push(new Combine(expr, operands.size()));
+                    for (int i = operands.size() - 1; i >= 0; i--) {
+                        Expression operand = operands.get(i);
+                        tasks.push(operand == null ? NULL_EXPRESSION : operand);
+                    }
+                }
+            }
         }
-        
+
+        return results.pop();
+    }
+
+    /**
+     * Return the subexpressions that have to be converted before the expression itself.
+     * Expressions that become a single atomic proposition have no operands.
+     */
+    private List<Expression> operandsOf(Expression expr) {
+        if (expr instanceof BinaryExpression) {
+            BinaryExpression bin = (BinaryExpression) expr;
+            switch (binaryArity(bin.getOperator())) {
+                case 2: return Arrays.asList(bin.getLeft(), bin.getRight());
+                case 1: return Collections.singletonList(bin.getLeft());
+                default: return List.of();
+            }
+        } else if (expr instanceof UnaryExpression) {
+            UnaryExpression un = (UnaryExpression) expr;
+            return unaryArity(un.getOperator()) == 1
+                    ? Collections.singletonList(un.getExpression())
+                    : List.of();
+        } else if (expr instanceof TermPrimary) {
+            TermPrimary term = (TermPrimary) expr;
+            if (isTemporalCall(term)) {
+                return Collections.singletonList(term.getParentSuffixPrimary().getArguments().get(0));
+            }
+            if (isDefineReference(term)) {
+                if (!expanding.add(term.getName())) {
+                    System.err.println("Warning: Cyclic define, not inlined: " + term.getName());
+                    return List.of();
+                }
+                return Collections.singletonList(defines.get(term.getName()));
+            }
+            return List.of();
+        } else if (expr instanceof TernaryExpression) {
+            TernaryExpression ternary = (TernaryExpression) expr;
+            return Arrays.asList(ternary.getCondition(), ternary.getLeft(), ternary.getRight());
+        }
+        return List.of();
+    }
+
+    /**
+     * Convert a single expression whose operands have already been converted
+     */
+    private Formula convert(Expression expression, Formula[] operands) {
         if (expression instanceof BinaryExpression) {
-            return convertBinaryExpression((BinaryExpression) expression);
+            return convertBinaryExpression((BinaryExpression) expression, operands);
         } else if (expression instanceof UnaryExpression) {
-            return convertUnaryExpression((UnaryExpression) expression);
+            return convertUnaryExpression((UnaryExpression) expression, operands);
         } else if (expression instanceof DotPrimary) {
             return convertDotPrimary((DotPrimary) expression);
         } else if (expression instanceof TermPrimary) {
-            return convertTermPrimary((TermPrimary) expression);
+            return convertTermPrimary((TermPrimary) expression, operands);
         } else if (expression instanceof org.rebecalang.compiler.modelcompiler.corerebeca.objectmodel.Literal) {
             return convertLiteral((org.rebecalang.compiler.modelcompiler.corerebeca.objectmodel.Literal) expression);
         } else if (expression instanceof TernaryExpression) {
-            return convertTernaryExpression((TernaryExpression) expression);
-        } else if (expression instanceof PlusSubExpression) {
-            return convertPlusSubExpression((PlusSubExpression) expression);
-        } else if (expression instanceof CastExpression) {
-            return convertCastExpression((CastExpression) expression);
-        } else if (expression instanceof InstanceofExpression) {
-            return convertInstanceofExpression((InstanceofExpression) expression);
-        } else if (expression instanceof NonDetExpression) {
-            return convertNonDetExpression((NonDetExpression) expression);
+            return convertTernaryExpression(operands);
+        } else if (expression instanceof PlusSubExpression
+                || expression instanceof CastExpression
+                || expression instanceof InstanceofExpression
+                || expression instanceof NonDetExpression) {
+            return createNamedAtomicProposition(expression);
         }
         
         // Fallback: treat unknown expressions as atomic propositions
         System.err.println("Warning: Unknown expression type: " + expression.getClass().getSimpleName());
         return createAtomicProposition("unknown_" + expression.getClass().getSimpleName());
     }
+
+    /**
+     * Number of operands a binary operator takes as formulas; 0 for operators forming an atom
+     */
+    private static int binaryArity(String operator) {
+        switch (operator) {
+            case "&&": case "and":
+            case "||": case "or":
+            case "->": case "implies":
+            case "<->": case "iff":
+            case "U": case "until":
+            case "W": case "weak_until":
+            case "M": case "strong_release":
+            case "R": case "release":
+                return 2;
+            case "G": case "globally":
+            case "F": case "finally":
+            case "X": case "next":
+                return 1;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Number of operands a unary operator takes as formulas; 0 for operators forming an atom
+     */
+    private static int unaryArity(String operator) {
+        switch (operator) {
+            case "!": case "not":
+            case "G": case "globally":
+            case "F": case "finally":
+            case "X": case "next":
+                return 1;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Whether the term refers to a define that is inlined
+     */
+    private boolean isDefineReference(TermPrimary term) {
+        return defines.containsKey(term.getName())
+                && (term.getParentSuffixPrimary() == null
+                    || term.getParentSuffixPrimary().getArguments().isEmpty());
+    }
+
+    /**
+     * Whether the term is a call of a temporal operator such as G(p)
+     */
+    private static boolean isTemporalCall(TermPrimary term) {
+        String name = term.getName();
+        return ("G".equals(name) || "F".equals(name) || "X".equals(name))
+                && term.getParentSuffixPrimary() != null
+                && !term.getParentSuffixPrimary().getArguments().isEmpty();
+    }
     
     /**
      * Convert BinaryExpression to Formula
      */
-    private static Formula convertBinaryExpression(BinaryExpression expr) {
+    private Formula convertBinaryExpression(BinaryExpression expr, Formula[] operands) {
         String operator = expr.getOperator();
-        Formula left = convertToFormula(expr.getLeft());
-        Formula right = convertToFormula(expr.getRight());
         
         switch (operator) {
             // Logical operators
             case "&&":
             case "and":
-                return new Conjunction(Arrays.asList(left, right));
+                return formulas.conjunction(operands[0], operands[1]);
             case "||":
             case "or":
-                return new Disjunction(Arrays.asList(left, right));
+                return formulas.disjunction(operands[0], operands[1]);
             case "->":
             case "implies":
-                return new Disjunction(Arrays.asList(new Negation(left), right));
+                return formulas.implication(operands[0], operands[1]);
             case "<->":
             case "iff":
-                return new Conjunction(Arrays.asList(
-                    new Disjunction(Arrays.asList(new Negation(left), right)),
-                    new Disjunction(Arrays.asList(left, new Negation(right)))
-                ));
+                return formulas.biconditional(operands[0], operands[1]);
             
             // Temporal operators
             case "G":
             case "globally":
-                return new GOperator(left);
+                return formulas.globally(operands[0]);
             case "F":
             case "finally":
-                return new FOperator(left);
+                return formulas.eventually(operands[0]);
             case "X":
             case "next":
-                return new XOperator(left);
+                return formulas.next(operands[0]);
             case "U":
             case "until":
-                return new UOperator(left, right);
+                return formulas.until(operands[0], operands[1]);
             case "W":
             case "weak_until":
-                return new WOperator(left, right);
+                return formulas.weakUntil(operands[0], operands[1]);
             case "M":
             case "strong_release":
-                return new MOperator(left, right);
+                return formulas.strongRelease(operands[0], operands[1]);
             case "R":
             case "release":
-                return new ROperator(left, right);
+                return formulas.release(operands[0], operands[1]);
             
             // Comparison operators (treat as atomic propositions)
             case "==":
@@ -136,7 +403,7 @@ public final class RebecaExpressionConverter {
             case "<=":
             case ">":
             case ">=":
-                return createAtomicProposition(expressionToString(expr));
+                return createComparisonAtomicProposition(expr);
             
             // Arithmetic operators (treat as atomic propositions)
             case "+":
@@ -144,70 +411,97 @@ public final class RebecaExpressionConverter {
             case "*":
             case "/":
             case "%":
-                return createAtomicProposition(expressionToString(expr));
+                return createNamedAtomicProposition(expr);
             
             default:
                 System.err.println("Warning: Unknown binary operator: " + operator);
-                return createAtomicProposition(expressionToString(expr));
+                return createNamedAtomicProposition(expr);
         }
     }
     
     /**
      * Convert UnaryExpression to Formula
      */
-    private static Formula convertUnaryExpression(UnaryExpression expr) {
+    private Formula convertUnaryExpression(UnaryExpression expr, Formula[] operands) {
         String operator = expr.getOperator();
-        Formula operand = convertToFormula(expr.getExpression());
         
         switch (operator) {
             case "!":
             case "not":
-                return new Negation(operand);
+                return formulas.negation(operands[0]);
             case "G":
             case "globally":
-                return new GOperator(operand);
+                return formulas.globally(operands[0]);
             case "F":
             case "finally":
-                return new FOperator(operand);
+                return formulas.eventually(operands[0]);
             case "X":
             case "next":
-                return new XOperator(operand);
+                return formulas.next(operands[0]);
             case "-":
             case "+":
                 // Arithmetic unary operators - treat as atomic propositions
-                return createAtomicProposition(expressionToString(expr));
+                return createNamedAtomicProposition(expr);
             default:
                 System.err.println("Warning: Unknown unary operator: " + operator);
-                return createAtomicProposition(expressionToString(expr));
+                return createNamedAtomicProposition(expr);
         }
     }
     
     /**
      * Convert DotPrimary (object.property access) to atomic proposition
      */
-    private static Formula convertDotPrimary(DotPrimary expr) {
-        String leftStr = expressionToString(expr.getLeft());
-        String rightStr = expressionToString(expr.getRight());
-        String atomicProp = leftStr + "." + rightStr;
-        return createAtomicProposition(atomicProp);
+    private Formula convertDotPrimary(DotPrimary expr) {
+        Integer index = namedExpressions.get(expr);
+
+        if (index == null) {
+            index = expr.getLeft() instanceof TermPrimary && expr.getRight() instanceof TermPrimary
+                    ? symbolIndex(((TermPrimary) expr.getLeft()).getName(), ((TermPrimary) expr.getRight()).getName())
+                    : atomicPropositions.indexOf(expressionToString(expr));
+            namedExpressions.put(expr, index);
+        }
+
+        return literal(index);
+    }
+
+    /**
+     * Index of the atomic proposition for a state variable of a rebec instance, e.g. phil0.eating.
+     * The names are only looked up in the declarations of the model; the proposition is keyed on
+     * the declarations and derives its name from them once the alphabet needs it.
+     */
+    private int symbolIndex(String instance, String variable) {
+        Instance declaration = instance == null ? null : instances.get(instance);
+        VariableDeclarator declarator = declaration == null || variable == null
+                ? null
+                : declaration.stateVariables().get(variable);
+
+        if (declarator == null) {
+            return atomicPropositions.indexOf(
+                    (instance != null ? instance : "term") + "." + (variable != null ? variable : "term"));
+        }
+
+        MainRebecDefinition definition = declaration.declaration();
+        return stateVariables
+                .computeIfAbsent(definition, key -> new IdentityHashMap<>())
+                .computeIfAbsent(declarator, key -> atomicPropositions.register(
+                        () -> definition.getName() + "." + declarator.getVariableName()));
     }
     
     /**
-     * Convert TermPrimary to atomic proposition
+     * Convert TermPrimary to atomic proposition, or to a temporal formula for calls like G(p)
      */
-    private static Formula convertTermPrimary(TermPrimary expr) {
+    private Formula convertTermPrimary(TermPrimary expr, Formula[] operands) {
         String name = expr.getName();
         if (name != null && !name.isEmpty()) {
-            if (expr.getParentSuffixPrimary() != null
-                    && !expr.getParentSuffixPrimary().getArguments().isEmpty()) {
-
-                Expression argExpr = expr.getParentSuffixPrimary().getArguments().get(0);
-                Formula argFormula = convertToFormula(argExpr);
-
+            if (operands.length == 1 && expanding.remove(name)) {
+                // The body of an inlined define
+                return operands[0];
+            }
+            if (operands.length == 1) {
                 switch (name) {
-                    case "G": return new GOperator(argFormula);
-                    case "F": return new FOperator(argFormula);
-                    case "X": return new XOperator(argFormula);
+                    case "G": return formulas.globally(operands[0]);
+                    case "F": return formulas.eventually(operands[0]);
+                    case "X": return formulas.next(operands[0]);
                 }
             }
             return createAtomicProposition(name);
@@ -218,7 +512,7 @@ public final class RebecaExpressionConverter {
     /**
      * Convert Literal to appropriate Formula
      */
-    private static Formula convertLiteral(org.rebecalang.compiler.modelcompiler.corerebeca.objectmodel.Literal expr) {
+    private Formula convertLiteral(org.rebecalang.compiler.modelcompiler.corerebeca.objectmodel.Literal expr) {
         // Try to get the literal value
         String value = expr.getLiteralValue();
         if (value != null) {
@@ -237,138 +531,176 @@ public final class RebecaExpressionConverter {
     /**
      * Convert TernaryExpression (condition ? true_expr : false_expr)
      */
-    private static Formula convertTernaryExpression(TernaryExpression expr) {
-        Formula condition = convertToFormula(expr.getCondition());
-        Formula trueExpr = convertToFormula(expr.getLeft());
-        Formula falseExpr = convertToFormula(expr.getRight());
-        
+    private Formula convertTernaryExpression(Formula[] operands) {
         // (condition && trueExpr) || (!condition && falseExpr)
-        return new Disjunction(Arrays.asList(
-            new Conjunction(Arrays.asList(condition, trueExpr)),
-            new Conjunction(Arrays.asList(new Negation(condition), falseExpr))
-        ));
+        return formulas.ifThenElse(operands[0], operands[1], operands[2]);
     }
     
     /**
-     * Convert PlusSubExpression to atomic proposition
-     */
-    private static Formula convertPlusSubExpression(PlusSubExpression expr) {
-        return createAtomicProposition(expressionToString(expr));
-    }
-    
-    /**
-     * Convert CastExpression to atomic proposition
+     * Create an atomic proposition with consistent indexing
      */
-    private static Formula convertCastExpression(CastExpression expr) {
-        return createAtomicProposition(expressionToString(expr));
+    private Formula createAtomicProposition(String name) {
+        return literal(atomicPropositions.indexOf(name));
     }
-    
+
     /**
-     * Convert InstanceofExpression to atomic proposition
+     * Create the atomic proposition named after the expression, naming every node only once
      */
-    private static Formula convertInstanceofExpression(InstanceofExpression expr) {
-        return createAtomicProposition(expressionToString(expr));
+    private Formula createNamedAtomicProposition(Expression expr) {
+        Integer index = namedExpressions.get(expr);
+
+        if (index == null) {
+            index = atomicPropositions.indexOf(expressionToString(expr));
+            namedExpressions.put(expr, index);
+        }
+
+        return literal(index);
     }
-    
+
     /**
-     * Convert NonDetExpression to atomic proposition
+     * Create the atomic proposition of a comparison and record which values it stands for
      */
-    private static Formula convertNonDetExpression(NonDetExpression expr) {
-        return createAtomicProposition(expressionToString(expr));
+    private Formula createComparisonAtomicProposition(BinaryExpression expr) {
+        boolean named = namedExpressions.containsKey(expr);
+        Formula atom = createNamedAtomicProposition(expr);
+
+        if (domainConstraints != null && !named) {
+            domainConstraints.add(namedExpressions.get(expr), expr, RebecaExpressionConverter::expressionToString);
+        }
+
+        return atom;
     }
-    
+
     /**
-     * Create an atomic proposition with consistent indexing
+     * Literal for a registered atomic proposition, renumbered by the local alphabet if one is active
      */
-    private static Formula createAtomicProposition(String name) {
-        Integer index = atomicPropositionMap.get(name);
-        if (index == null) {
-            index = atomicPropositionCounter++;
-            atomicPropositionMap.put(name, index);
-        }
-        return new Literal(index);
+    private Formula literal(int index) {
+        return formulas.literal(alphabet == null ? index : alphabet.indexOf(index));
     }
     
     /**
      * Convert expression to string representation for atomic propositions
+     * Pending pieces are kept on an explicit stack, either as text or as expressions still to print.
      */
-    private static String expressionToString(Expression expr) {
-        if (expr instanceof TermPrimary) {
-            TermPrimary term = (TermPrimary) expr;
-            return term.getName() != null ? term.getName() : "term";
-        } else if (expr instanceof DotPrimary) {
-            DotPrimary dot = (DotPrimary) expr;
-            return expressionToString(dot.getLeft()) + "." + expressionToString(dot.getRight());
-        } else if (expr instanceof org.rebecalang.compiler.modelcompiler.corerebeca.objectmodel.Literal) {
-            org.rebecalang.compiler.modelcompiler.corerebeca.objectmodel.Literal lit = (org.rebecalang.compiler.modelcompiler.corerebeca.objectmodel.Literal) expr;
-            return lit.getLiteralValue() != null ? lit.getLiteralValue() : "literal";
-        } else if (expr instanceof BinaryExpression) {
-            BinaryExpression bin = (BinaryExpression) expr;
-            return "(" + expressionToString(bin.getLeft()) + " " + bin.getOperator() + " " + expressionToString(bin.getRight()) + ")";
-        } else if (expr instanceof UnaryExpression) {
-            UnaryExpression un = (UnaryExpression) expr;
-            return un.getOperator() + "(" + expressionToString(un.getExpression()) + ")";
+    private static String expressionToString(Expression expression) {
+        StringBuilder builder = new StringBuilder();
+        Deque<Object> pending = new ArrayDeque<>();
+        pending.push(expression == null ? NULL_EXPRESSION : expression);
+
+        while (!pending.isEmpty()) {
+            Object next = pending.pop();
+
+            if (next instanceof String) {
+                builder.append((String) next);
+            } else if (next == NULL_EXPRESSION) {
+                builder.append("null");
+            } else if (next instanceof TermPrimary) {
+                TermPrimary term = (TermPrimary) next;
+                builder.append(term.getName() != null ? term.getName() : "term");
+            } else if (next instanceof DotPrimary) {
+                DotPrimary dot = (DotPrimary) next;
+                pushExpression(pending, dot.getRight());
+                pending.push(".");
+                pushExpression(pending, dot.getLeft());
+            } else if (next instanceof org.rebecalang.compiler.modelcompiler.corerebeca.objectmodel.Literal) {
+                org.rebecalang.compiler.modelcompiler.corerebeca.objectmodel.Literal lit = (org.rebecalang.compiler.modelcompiler.corerebeca.objectmodel.Literal) next;
+                builder.append(lit.getLiteralValue() != null ? lit.getLiteralValue() : "literal");
+            } else if (next instanceof BinaryExpression) {
+                BinaryExpression bin = (BinaryExpression) next;
+                builder.append('(');
+                pending.push(")");
+                pushExpression(pending, bin.getRight());
+                pending.push(" " + bin.getOperator() + " ");
+                pushExpression(pending, bin.getLeft());
+            } else if (next instanceof UnaryExpression) {
+                UnaryExpression un = (UnaryExpression) next;
+                builder.append(un.getOperator()).append('(');
+                pending.push(")");
+                pushExpression(pending, un.getExpression());
+            } else {
+                builder.append(next.getClass().getSimpleName());
+            }
         }
-        return expr.getClass().getSimpleName();
+
+        return builder.toString();
+    }
+
+    private static void pushExpression(Deque<Object> pending, Expression expression) {
+        pending.push(expression == null ? NULL_EXPRESSION : expression);
     }
     
     /**
      * Convert a Definition to LabelledFormula
+     * The alphabet of the result only contains the atomic propositions the definition mentions,
+     * numbered in order of first occurrence; the names map back to {@link #atomicPropositions()}.
      * 
      * @param definition the Rebeca Definition to convert
      * @return the corresponding LabelledFormula
      */
-    public static LabelledFormula convertDefinitionToLabelledFormula(Definition definition) {
-        Formula formula = convertToFormula(definition.getExpression());
-        
-        // Create atomic propositions list from our map
-        List<String> atomicProps = new ArrayList<>();
-        for (int i = 0; i < atomicPropositionCounter; i++) {
-            atomicProps.add(null); // Initialize with nulls
-        }
-        
-        // Fill in the atomic proposition names
-        for (Map.Entry<String, Integer> entry : atomicPropositionMap.entrySet()) {
-            atomicProps.set(entry.getValue(), entry.getKey());
-        }
-        
-        // Remove nulls and ensure we have at least empty list
-        atomicProps.removeIf(Objects::isNull);
-        
-        return LabelledFormula.of(formula, atomicProps);
+    public LabelledFormula convertDefinitionToLabelledFormula(Definition definition) {
+        return convertWithLocalAlphabet(definition.getExpression());
     }
 
     /**
      * Convert a Definition to LabelledFormula
+     * The alphabet of the result only contains the atomic propositions the definition mentions.
      *
      * @param ltlDefinition the Rebeca Definition to convert
      * @return the corresponding LabelledFormula
      */
-    public static LabelledFormula convertLtlDefinitionToLabelledFormula(LTLDefinition ltlDefinition) {
-        Formula formula = convertToFormula(ltlDefinition.getExpression());
+    public LabelledFormula convertLtlDefinitionToLabelledFormula(LTLDefinition ltlDefinition) {
+        return convertWithLocalAlphabet(ltlDefinition.getExpression());
+    }
 
-        // Create atomic propositions list from our map
-        List<String> atomicProps = new ArrayList<>();
-        for (int i = 0; i < atomicPropositionCounter; i++) {
-            atomicProps.add(null); // Initialize with nulls
-        }
+    private LabelledFormula convertWithLocalAlphabet(Expression expression) {
+        LocalAlphabet previous = alphabet;
+        alphabet = new LocalAlphabet();
 
-        // Fill in the atomic proposition names
-        for (Map.Entry<String, Integer> entry : atomicPropositionMap.entrySet()) {
-            atomicProps.set(entry.getValue(), entry.getKey());
-        }
+        try {
+            Formula formula = convertToFormula(expression);
 
-        // Remove nulls and ensure we have at least empty list
-        atomicProps.removeIf(Objects::isNull);
+            if (domainConstraints != null) {
+                formula = formulas.conjunction(formula,
+                        domainConstraints.constraints(alphabet.atomicPropositions(), this::literal, formulas));
+            }
 
-        return LabelledFormula.of(formula, atomicProps);
+            return LabelledFormula.of(formula, alphabet.names());
+        } finally {
+            alphabet = previous;
+        }
     }
-    
+
     /**
-     * Reset the atomic proposition mapping (useful for processing multiple formulas)
+     * Consecutive local indices for the global atomic propositions used by one definition
      */
-    public static void resetAtomicPropositions() {
-        atomicPropositionMap.clear();
-        atomicPropositionCounter = 0;
+    private final class LocalAlphabet {
+
+        // Local index plus one for every global index, 0 if the proposition is not used
+        private int[] localIndices = new int[16];
+        private final List<String> names = new ArrayList<>();
+        private final List<Integer> atomicPropositions = new ArrayList<>();
+
+        private int indexOf(int index) {
+            if (index >= localIndices.length) {
+                localIndices = Arrays.copyOf(localIndices, Math.max(index + 1, 2 * localIndices.length));
+            }
+
+            if (localIndices[index] == 0) {
+                names.add(RebecaExpressionConverter.this.atomicPropositions.name(index));
+                atomicPropositions.add(index);
+                localIndices[index] = names.size();
+            }
+
+            return localIndices[index] - 1;
+        }
+
+        private List<String> names() {
+            return List.copyOf(names);
+        }
+
+        // The global indices in local order
+        private List<Integer> atomicPropositions() {
+            return List.copyOf(atomicPropositions);
+        }
     }
 }
\ No newline at end of file
@@ -90,7 +90,7 @@ public final class RebecaTestUtils {
         definition.setName("Safety");
 
         // Convert Definition to LabelledFormula using the new converter
-        LabelledFormula labelledFormula = RebecaExpressionConverter.convertDefinitionToLabelledFormula(definition);
+        LabelledFormula labelledFormula = new RebecaExpressionConverter().convertDefinitionToLabelledFormula(definition);
 
         return labelledFormula;
     }
@@ -126,7 +126,7 @@ public final class RebecaTestUtils {
         definition.setName("Deadlock");
 
         // Convert to LabelledFormula
-        LabelledFormula labelledFormula = RebecaExpressionConverter.convertDefinitionToLabelledFormula(definition);
+        LabelledFormula labelledFormula = new RebecaExpressionConverter().convertDefinitionToLabelledFormula(definition);
 
         return labelledFormula;
     }
@@ -174,7 +174,7 @@ public final class RebecaTestUtils {
         definition.setExpression(binaryExpr);
         definition.setName("BinaryTest_" + operator);
 
-        return RebecaExpressionConverter.convertDefinitionToLabelledFormula(definition);
+        return new RebecaExpressionConverter().convertDefinitionToLabelledFormula(definition);
     }
 
     /**
@@ -197,7 +197,7 @@ public final class RebecaTestUtils {
         definition.setExpression(unaryExpr);
         definition.setName("UnaryTest_" + operator);
 
-        return RebecaExpressionConverter.convertDefinitionToLabelledFormula(definition);
+        return new RebecaExpressionConverter().convertDefinitionToLabelledFormula(definition);
     }
 
     /**
@@ -0,0 +1,15 @@
+package com.rebeca;
+
+/**
+ * Signals that a Rebeca model or property could not be converted or translated.
+ */
+public class RebecaTranslationException extends RuntimeException {
+
+    public RebecaTranslationException(String message) {
+        super(message);
+    }
+
+    public RebecaTranslationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
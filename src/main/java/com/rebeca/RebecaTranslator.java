@@ -0,0 +1,226 @@
+package com.rebeca;
+
+import owl.automaton.Automaton;
+import owl.automaton.acceptance.BuchiAcceptance;
+import owl.automaton.acceptance.EmersonLeiAcceptance;
+import owl.command.WorkerPool;
+import owl.ltl.LabelledFormula;
+import owl.translations.LtlTranslationRepository;
+import owl.translations.LtlTranslationRepository.LtlToNbaTranslation;
+import owl.translations.LtlTranslationRepository.LtlTranslation;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Translates Rebeca properties to automata without going through the command line.
+ * A translator is configured once and then reused for any number of requests, possibly
+ * concurrently. Each thread builds its translation pipeline on first use and keeps it for later
+ * requests, so the pipelines, and the BDD factories they hold, are never shared between threads.
+ * Failures are reported as {@link RebecaTranslationException}.
+ */
+public final class RebecaTranslator {
+
+    /**
+     * Settings of a translator. They correspond to the options of the rebeca commands.
+     *
+     * @param simplifyFormula simplify formulas before translating them
+     * @param simplifyAutomaton simplify the acceptance condition of the automata
+     * @param complete make the automata complete
+     * @param portfolio translate simple LTL fragments directly
+     * @param translationCache reuse automata of formulas already translated by the same thread
+     * @param conversion optional steps of the conversion from Rebeca properties to LTL
+     */
+    public record Options(boolean simplifyFormula,
+                          boolean simplifyAutomaton,
+                          boolean complete,
+                          boolean portfolio,
+                          boolean translationCache,
+                          Set<RebecaExpressionConverter.Option> conversion) {
+
+        public Options {
+            conversion = Set.copyOf(conversion);
+        }
+
+        /**
+         * The settings the commands use if no option is given.
+         */
+        public static Options defaults() {
+            return new Options(true, true, false, true, true, Set.of());
+        }
+
+        public Options withConversion(Set<RebecaExpressionConverter.Option> conversion) {
+            return new Options(simplifyFormula, simplifyAutomaton, complete, portfolio, translationCache, conversion);
+        }
+
+        public Options withTranslationCache(boolean translationCache) {
+            return new Options(simplifyFormula, simplifyAutomaton, complete, portfolio, translationCache, conversion);
+        }
+
+        Set<LtlTranslationRepository.Option> translationOptions() {
+            var options = EnumSet.noneOf(LtlTranslationRepository.Option.class);
+
+            if (simplifyFormula) {
+                options.add(LtlTranslationRepository.Option.SIMPLIFY_FORMULA);
+            }
+
+            if (simplifyAutomaton) {
+                options.add(LtlTranslationRepository.Option.SIMPLIFY_AUTOMATON);
+            }
+
+            if (complete) {
+                options.add(LtlTranslationRepository.Option.COMPLETE);
+            }
+
+            if (portfolio) {
+                options.add(LtlTranslationRepository.Option.USE_PORTFOLIO_FOR_SYNTACTIC_LTL_FRAGMENTS);
+            }
+
+            return options;
+        }
+    }
+
+    /**
+     * Time spent on a request and the use of the translation cache during the request. The cache is
+     * shared by all requests of a thread, hence requests run on the same thread see each other's
+     * hits and misses.
+     */
+    public record Metrics(Duration conversion, Duration translation, long cacheHits, long cacheMisses) {
+    }
+
+    /**
+     * The formulas of all definitions and their automata in the same order.
+     */
+    public record Result(List<LabelledFormula> formulas, List<Automaton<?, ?>> automata, Metrics metrics) {
+    }
+
+    private final Options options;
+    private final TranslationCache.Configuration configuration;
+    private final ThreadLocal<Function<LabelledFormula, ? extends Automaton<?, ?>>> pipelines;
+
+    /**
+     * Create a translator.
+     *
+     * @param translation the LTL translation
+     * @param acceptanceClass the acceptance condition of the automata
+     * @param options the settings of the translator
+     */
+    public <L extends A, A extends EmersonLeiAcceptance> RebecaTranslator(
+            LtlTranslation<L, A> translation,
+            Class<? extends A> acceptanceClass,
+            Options options) {
+
+        Set<LtlTranslationRepository.Option> translationOptions = options.translationOptions();
+        this.options = options;
+        this.configuration = new TranslationCache.Configuration(
+                translation, acceptanceClass, translationOptions, OptionalInt.empty());
+        this.pipelines = ThreadLocal.withInitial(
+                () -> translation.translation(acceptanceClass, translationOptions, OptionalInt.empty()));
+    }
+
+    /**
+     * A translator to Büchi automata with the default translation, as used by rebeca2nba.
+     */
+    public static RebecaTranslator nba(Options options) {
+        return new RebecaTranslator(LtlToNbaTranslation.DEFAULT, BuchiAcceptance.class, options);
+    }
+
+    /**
+     * Translate all definitions of the property files.
+     *
+     * @param model the Rebeca model
+     * @param properties the property files referring to the model
+     * @return the formulas, their automata and metrics
+     */
+    public Result translate(Path model, List<Path> properties) {
+        List<LabelledFormula> formulas = new ArrayList<>();
+        List<Automaton<?, ?>> automata = new ArrayList<>();
+        Metrics metrics = translate(model, properties, (formula, automaton) -> {
+            formulas.add(formula);
+            automata.add(automaton);
+        });
+        return new Result(List.copyOf(formulas), List.copyOf(automata), metrics);
+    }
+
+    /**
+     * Translate all definitions of the property files and hand every automaton to the listener as
+     * soon as it is translated. Unless {@link Options#translationCache()} is disabled, the shared
+     * translation cache keeps the automata alive up to its limits.
+     *
+     * @param model the Rebeca model
+     * @param properties the property files referring to the model
+     * @param listener receives the automata in the order of the definitions
+     * @return metrics of the request
+     */
+    public Metrics translate(Path model, List<Path> properties, AutomatonListener listener) {
+        if (properties.isEmpty()) {
+            throw new IllegalArgumentException("Expected at least one property file.");
+        }
+
+        long start = System.nanoTime();
+        List<LabelledFormula> formulas;
+
+        try {
+            formulas = Rebeca.convert(model.toString(),
+                    properties.stream().map(Path::toString).toList(), false, null, options.conversion());
+        } catch (Exception ex) {
+            throw new RebecaTranslationException("Conversion of " + properties + " failed: " + ex.getMessage(), ex);
+        }
+
+        long converted = System.nanoTime();
+        TranslationCache.Stats before = TranslationCache.shared().stats();
+
+        for (LabelledFormula formula : formulas) {
+            Automaton<?, ?> automaton;
+
+            try {
+                automaton = options.translationCache()
+                        ? TranslationCache.shared().translate(new TranslationCache.Key(formula, configuration), pipelines.get())
+                        : pipelines.get().apply(formula);
+            } catch (RuntimeException ex) {
+                throw new RebecaTranslationException("Translation of " + formula + " failed: " + ex.getMessage(), ex);
+            }
+
+            try {
+                listener.translated(formula, automaton);
+            } catch (RuntimeException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new RebecaTranslationException("Listener failed for " + formula + ": " + ex.getMessage(), ex);
+            }
+        }
+
+        TranslationCache.Stats after = TranslationCache.shared().stats();
+
+        return new Metrics(Duration.ofNanos(converted - start), Duration.ofNanos(System.nanoTime() - converted),
+                after.hits() - before.hits(), after.misses() - before.misses());
+    }
+
+    /**
+     * Translate the property files on the shared command pool. Requests run on that pool rather than
+     * on the worker pool, because the conversion of several property files waits for worker tasks.
+     *
+     * @param model the Rebeca model
+     * @param properties the property files referring to the model
+     * @return a future that completes with the result or with a {@link RebecaTranslationException}
+     */
+    public CompletableFuture<Result> submit(Path model, List<Path> properties) {
+        return submit(model, properties, WorkerPool.commands());
+    }
+
+    /**
+     * Translate the property files on the given executor.
+     */
+    public CompletableFuture<Result> submit(Path model, List<Path> properties, Executor executor) {
+        List<Path> propertyFiles = List.copyOf(properties);
+        return CompletableFuture.supplyAsync(() -> translate(model, propertyFiles), executor);
+    }
+}
@@ -0,0 +1,182 @@
+package com.rebeca;
+
+import owl.automaton.Automaton;
+import owl.ltl.LabelledFormula;
+import owl.translations.LtlTranslationRepository;
+import owl.translations.LtlTranslationRepository.LtlTranslation;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded in-memory cache of translated automata.
+ * Entries are keyed by the labelled formula together with the translation configuration and are
+ * evicted in least-recently-used order once either the number of entries or their total weight
+ * exceeds its limit. The weight of an entry is the length of its printed formula, which is known
+ * without exploring the automaton, since the automata of a translation are usually explored
+ * lazily. Each distinct formula is translated at most once by a thread as long as it stays
+ * cached; if a cache is used by several threads, concurrent requests for the same key wait for the
+ * first translation instead of starting their own.
+ */
+public final class TranslationCache {
+
+    // Automata refer to the BDD factory of the thread that translated them, which must not be used
+    // by other threads, hence every thread has its own cache.
+    private static final ThreadLocal<TranslationCache> SHARED =
+            ThreadLocal.withInitial(() -> new TranslationCache(1024, 4_000_000));
+
+    /**
+     * Translation settings that influence the resulting automaton.
+     */
+    public record Configuration(LtlTranslation<?, ?> translation,
+                                Class<?> acceptanceClass,
+                                Set<LtlTranslationRepository.Option> options,
+                                OptionalInt lookahead) {
+
+        public Configuration {
+            options = Set.copyOf(options);
+        }
+    }
+
+    public record Key(LabelledFormula formula, Configuration configuration) {
+    }
+
+    public record Stats(long hits, long misses, long evictions, int size, long weight) {
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<Automaton<?, ?>> automaton = new CompletableFuture<>();
+        private long weight = 0;
+    }
+
+    private final int maximumSize;
+    private final long maximumWeight;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Create a cache.
+     *
+     * @param maximumSize the maximal number of cached automata
+     * @param maximumWeight the maximal length of the printed formulas summed over all cached
+     *     automata
+     */
+    public TranslationCache(int maximumSize, long maximumWeight) {
+        if (maximumSize < 1 || maximumWeight < 1) {
+            throw new IllegalArgumentException("Cache limits must be positive.");
+        }
+
+        this.maximumSize = maximumSize;
+        this.maximumWeight = maximumWeight;
+    }
+
+    /**
+     * The cache shared by all translations of the calling thread.
+     */
+    public static TranslationCache shared() {
+        return SHARED.get();
+    }
+
+    /**
+     * Return the cached automaton for the key or translate the formula of the key and cache the
+     * result.
+     *
+     * @param key the formula and translation configuration
+     * @param translator the translation matching the configuration of the key
+     * @return the automaton for the formula
+     */
+    public Automaton<?, ?> translate(
+            Key key, Function<? super LabelledFormula, ? extends Automaton<?, ?>> translator) {
+
+        Entry entry;
+        boolean owner = false;
+
+        synchronized (this) {
+            entry = entries.get(key);
+
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(key, entry);
+                owner = true;
+            }
+        }
+
+        if (!owner) {
+            hits.increment();
+
+            try {
+                return entry.automaton.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+
+                if (ex.getCause() instanceof Error error) {
+                    throw error;
+                }
+
+                throw ex;
+            }
+        }
+
+        misses.increment();
+        Automaton<?, ?> automaton;
+
+        try {
+            automaton = translator.apply(key.formula());
+        } catch (RuntimeException | Error ex) {
+            synchronized (this) {
+                entries.remove(key, entry);
+            }
+
+            entry.automaton.completeExceptionally(ex);
+            throw ex;
+        }
+
+        entry.automaton.complete(automaton);
+        long automatonWeight = Math.max(1, FormulaPrinter.print(key.formula(), new StringBuilder()).length());
+
+        synchronized (this) {
+            // The entry might have been evicted while the translation was running.
+            if (entries.get(key) == entry) {
+                entry.weight = automatonWeight;
+                weight += automatonWeight;
+                evict();
+            }
+        }
+
+        return automaton;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+
+        // Keep at least the most recently used entry, even if it exceeds the weight limit alone.
+        while ((entries.size() > maximumSize || weight > maximumWeight) && entries.size() > 1) {
+            Entry eldest = iterator.next().getValue();
+            iterator.remove();
+            weight -= eldest.weight;
+            evictions.increment();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), entries.size(), weight);
+    }
+}
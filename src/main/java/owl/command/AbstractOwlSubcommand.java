@@ -24,7 +24,6 @@ import org.graalvm.nativeimage.ImageInfo;
 
 import java.util.List;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
 
 import static owl.thirdparty.picocli.CommandLine.Option;
 import static owl.thirdparty.picocli.CommandLine.ParentCommand;
@@ -64,9 +63,7 @@ public abstract class AbstractOwlSubcommand extends AbstractOwlCommand {
 
     if (ImageInfo.inImageCode()) {
       // Workaround for https://github.com/oracle/graal/issues/3398
-      var executor = Executors.newSingleThreadExecutor(
-        runnable -> new Thread(null, runnable, "main-with-larger-stack"));
-      var future = executor.submit(this::run);
+      var future = WorkerPool.commands().submit(this::run);
 
       try {
         return Uninterruptibles.getUninterruptibly(future);
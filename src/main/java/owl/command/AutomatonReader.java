@@ -1,63 +1,264 @@
 package owl.command;
 
 import com.google.common.base.Preconditions;
-import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.common.util.concurrent.Futures;
 import owl.automaton.Automaton;
 import owl.automaton.acceptance.EmersonLeiAcceptance;
 import owl.automaton.acceptance.OmegaAcceptanceCast;
 import owl.automaton.hoa.HoaReader;
+import owl.bdd.BddSetFactory;
 import owl.bdd.FactorySupplier;
 import owl.thirdparty.jhoafparser.parser.generated.ParseException;
 import owl.thirdparty.picocli.CommandLine;
 
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.UncheckedIOException;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public final class AutomatonReader {
 
     @CommandLine.Option(
       names = { "-i", "--input-file" },
       description = "Input file (default: read from stdin). If '-' is specified, then the tool "
-        + "reads from stdin. This option is repeatable."
+        + "reads from stdin. This option is repeatable. Gzip-compressed input is decompressed "
+        + "transparently."
     )
     private String[] automatonFile = { "-" };
 
+    @CommandLine.Option(
+      names = "--input-workers",
+      description = "Number of input files that are parsed concurrently. Automata are still "
+        + "returned in the order of the files. Files parsed ahead are held in memory completely. "
+        + "The default value 1 reads the files one after another and parses an automaton only "
+        + "when it is needed."
+    )
+    private int inputWorkers = 1;
+
+    /**
+     * The automata of all input files in order. The files are read lazily: an automaton is only
+     * parsed when the stream asks for it, so processing starts with the first automaton of a file
+     * and the automata already consumed are not retained. The stream must be closed.
+     */
     <A extends EmersonLeiAcceptance> Stream<Automaton<Integer, ? extends A>>
       source(Class<A> acceptanceClass) {
 
-      return Stream.of(automatonFile).flatMap(file -> {
-        try (var reader = "-".equals(file)
-          ? new BufferedReader(new InputStreamReader(System.in))
-          : Files.newBufferedReader(Path.of(file))) {
-
-          List<Automaton<Integer, ? extends A>> automata = new ArrayList<>();
-
-          // Warning: the 'readStream'-method reads until the reader is exhausted and thus this
-          // method blocks in while reading from stdin.
-          HoaReader.readStream(reader,
-            FactorySupplier.defaultSupplier()::getBddSetFactory,
-            null,
-            automaton -> {
-              Preconditions.checkArgument(
-                OmegaAcceptanceCast.isInstanceOf(automaton.acceptance().getClass(),
-                  acceptanceClass),
-                String.format("Expected %s, but got %s.", acceptanceClass, automaton.acceptance()));
-              automata.add(OmegaAcceptanceCast.cast(automaton, acceptanceClass));
-            });
-
-          return automata.stream();
+      // Not Stream.flatMap, whose iterator buffers the whole stream of a file.
+      var files = new InputFiles(List.of(automatonFile), inputWorkers);
+      return StreamSupport.stream(files, false)
+        .onClose(files::close)
+        .map(automaton -> cast(automaton, acceptanceClass));
+    }
+
+    /**
+     * The automata of the input files, opening a file once the automata of the previous file are
+     * exhausted. With several workers the next files are parsed ahead on the worker pool instead,
+     * each with a BDD factory of its own, since the factories are not shared between threads.
+     */
+    private static final class InputFiles
+      extends Spliterators.AbstractSpliterator<Automaton<Integer, ? extends EmersonLeiAcceptance>> {
+
+      private final Iterator<String> files;
+      private final int workers;
+      private final Deque<Future<List<Automaton<Integer, ? extends EmersonLeiAcceptance>>>> parsed =
+        new ArrayDeque<>();
+      @Nullable
+      private Stream<Automaton<Integer, ? extends EmersonLeiAcceptance>> current;
+      @Nullable
+      private Spliterator<Automaton<Integer, ? extends EmersonLeiAcceptance>> automata;
+
+      private InputFiles(List<String> files, int workers) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        Preconditions.checkArgument(workers >= 1, "--input-workers must be positive.");
+        this.files = files.iterator();
+        this.workers = files.size() > 1 ? workers : 1;
+      }
+
+      @Override
+      public boolean tryAdvance(
+        Consumer<? super Automaton<Integer, ? extends EmersonLeiAcceptance>> action) {
+
+        while (automata == null || !automata.tryAdvance(action)) {
+          closeCurrent();
+
+          if (workers > 1) {
+            parseAhead();
+
+            if (parsed.isEmpty()) {
+              return false;
+            }
+
+            current = Futures.getUnchecked(parsed.remove()).stream();
+          } else if (files.hasNext()) {
+            current = open(files.next());
+          } else {
+            return false;
+          }
+
+          automata = current.spliterator();
+        }
+
+        return true;
+      }
+
+      private void parseAhead() {
+        ExecutorService executor = WorkerPool.workers(workers);
+
+        while (parsed.size() < workers && files.hasNext()) {
+          String file = files.next();
+
+          parsed.add(executor.submit(() -> parse(file)));
+        }
+      }
+
+      private static Stream<Automaton<Integer, ? extends EmersonLeiAcceptance>> open(String file) {
+        try {
+          return "-".equals(file) ? readStdin() : readFile(Path.of(file));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+
+      // Parse the whole file on the calling worker with a BDD factory of its own.
+      private static List<Automaton<Integer, ? extends EmersonLeiAcceptance>> parse(String file)
+        throws IOException, ParseException {
+
+        BddSetFactory factory = FactorySupplier.defaultSupplier().getBddSetFactory();
+        BufferedInputStream input;
+
+        if ("-".equals(file)) {
+          input = Compression.decompress(System.in);
+        } else {
+          ByteBuffer binary = mapBinary(Path.of(file));
+
+          if (binary != null) {
+            return BinaryAutomatonFormat.stream(binary, factory).toList();
+          }
+
+          input = Compression.open(Path.of(file));
+        }
+
+        try (input) {
+          if (isBinary(input)) {
+            return BinaryAutomatonFormat.stream(ByteBuffer.wrap(input.readAllBytes()), factory)
+              .toList();
+          }
+
+          List<Automaton<Integer, ? extends EmersonLeiAcceptance>> automata = new ArrayList<>();
+          HoaReader.readStream(reader(input), () -> factory, null, automata::add);
+          return automata;
+        }
+      }
+
+      private void closeCurrent() {
+        if (current != null) {
+          current.close();
+          current = null;
+          automata = null;
+        }
+      }
+
+      private void close() {
+        closeCurrent();
+        parsed.forEach(future -> future.cancel(true));
+        parsed.clear();
+      }
+    }
+
+    private static <A extends EmersonLeiAcceptance> Automaton<Integer, ? extends A> cast(
+      Automaton<Integer, ? extends EmersonLeiAcceptance> automaton, Class<A> acceptanceClass) {
+
+      Preconditions.checkArgument(
+        OmegaAcceptanceCast.isInstanceOf(automaton.acceptance().getClass(), acceptanceClass),
+        String.format("Expected %s, but got %s.", acceptanceClass, automaton.acceptance()));
+      return OmegaAcceptanceCast.cast(automaton, acceptanceClass);
+    }
+
+    // Files in the binary format are mapped and decoded from the mapping; everything else is
+    // streamed.
+    private static Stream<Automaton<Integer, ? extends EmersonLeiAcceptance>> readFile(Path file)
+      throws IOException {
+
+      ByteBuffer binary = mapBinary(file);
+
+      if (binary != null) {
+        return BinaryAutomatonFormat.stream(binary,
+          FactorySupplier.defaultSupplier().getBddSetFactory());
+      }
+
+      return read(Compression.open(file));
+    }
+
+    /**
+     * The mapped contents of the file if it is in the binary format, or null otherwise.
+     */
+    @Nullable
+    private static ByteBuffer mapBinary(Path file) throws IOException {
+      try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        if (channel.size() > Integer.MAX_VALUE) {
+          return null;
+        }
+
+        var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        return BinaryAutomatonFormat.isBinary(buffer) ? buffer : null;
+      }
+    }
+
+    private static Stream<Automaton<Integer, ? extends EmersonLeiAcceptance>> readStdin()
+      throws IOException {
+
+      return read(Compression.decompress(System.in));
+    }
+
+    // Stdin and compressed files cannot be mapped, hence binary input is read into memory first.
+    private static Stream<Automaton<Integer, ? extends EmersonLeiAcceptance>> read(
+      BufferedInputStream input) throws IOException {
+
+      if (isBinary(input)) {
+        try (input) {
+          return BinaryAutomatonFormat.stream(ByteBuffer.wrap(input.readAllBytes()),
+            FactorySupplier.defaultSupplier().getBddSetFactory());
+        }
+      }
+
+      // Closes the input also if the stream is closed before the parser has started.
+      return HoaStream.of(() -> reader(input)).onClose(() -> {
+        try {
+          input.close();
         } catch (IOException e) {
           throw new UncheckedIOException(e);
-        } catch (ParseException e) {
-          throw new UncheckedExecutionException(e);
         }
       });
     }
+
+    private static boolean isBinary(BufferedInputStream input) throws IOException {
+      input.mark(BinaryAutomatonFormat.MAGIC_LENGTH);
+      byte[] magic = input.readNBytes(BinaryAutomatonFormat.MAGIC_LENGTH);
+      input.reset();
+      return BinaryAutomatonFormat.isBinary(ByteBuffer.wrap(magic));
+    }
+
+    private static BufferedReader reader(InputStream input) {
+      return new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    }
   }
\ No newline at end of file
@@ -4,15 +4,15 @@ import owl.automaton.Automaton;
 import owl.automaton.Views;
 import owl.automaton.hoa.HoaWriter;
 import owl.thirdparty.jhoafparser.consumer.HOAConsumerException;
-import owl.thirdparty.jhoafparser.consumer.HOAIntermediateStoreAndManipulate;
 import owl.thirdparty.jhoafparser.owl.extensions.HOAConsumerPrintFixed;
-import owl.thirdparty.jhoafparser.owl.extensions.ToStateAcceptanceFixed;
 import owl.thirdparty.picocli.CommandLine.Option;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.List;
 
@@ -21,7 +21,7 @@ public final class AutomatonWriter {
     @Option(
       names = { "-o", "--output-file" },
       description = "Output file (default: write to stdout). If '-' is specified, then the tool "
-        + "writes to stdout."
+        + "writes to stdout. If the name ends with '.gz', the output is gzip-compressed."
     )
     private String automatonFile = null;
 
@@ -52,8 +52,27 @@ public final class AutomatonWriter {
     )
     private boolean stateLabels = false;
 
+    @Option(
+      names = {"--binary"},
+      description = "Output automata in a compact binary format instead of HOA. The format is "
+        + "only understood by the tools of this project, which detect it automatically when "
+        + "reading automata."
+    )
+    private boolean binary = false;
+
+    @Option(
+      names = {"--compression-workers"},
+      description = "Number of threads compressing the output file concurrently if it is "
+        + "gzip-compressed. The default value 1 compresses on the writing thread."
+    )
+    private int compressionWorkers = 1;
+
+    // Shared by all automata written to a sink.
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     public class Sink implements AutoCloseable {
 
+      private final OutputStream output;
       private final BufferedWriter writer;
       private final String subcommand;
       private final List<String> subcommandArgs;
@@ -64,12 +83,16 @@ public final class AutomatonWriter {
           automatonFile = null;
         }
 
-        if (automatonFile == null) {
-          writer = new BufferedWriter(new OutputStreamWriter(System.out));
-        } else {
-          writer = Files.newBufferedWriter(Path.of(automatonFile));
+        if (binary && stateAcceptance) {
+          throw new IllegalArgumentException(
+            "--state-acceptance cannot be combined with --binary.");
         }
 
+        output = automatonFile == null
+          ? new BufferedOutputStream(System.out, BUFFER_SIZE)
+          : Compression.create(Path.of(automatonFile), compressionWorkers);
+        writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+
         this.subcommand = subcommand;
         this.subcommandArgs = List.copyOf(subcommandArgs);
       }
@@ -86,21 +109,33 @@ public final class AutomatonWriter {
           automaton = Views.complete(automaton);
         }
 
+        if (binary) {
+          BinaryAutomatonFormat.write(automaton, output);
+          output.flush();
+          return;
+        }
+
         var printer = new HOAConsumerPrintFixed(writer);
 
-        // Replace this by a fixed version to preserve owl header extension in case of state
-        // acceptance.
-        var wrappedPrinter = stateAcceptance
-          ? new HOAIntermediateStoreAndManipulate(printer, new ToStateAcceptanceFixed())
-          : printer;
-
-//        HoaWriter.write(
-//          automaton,
-//          wrappedPrinter,
-//          stateLabels,
-//          subcommand,
-//          subcommandArgs,
-//          automatonName);
+        // States are written as they are explored; with state acceptance the marks are pushed onto
+        // the successors on the fly instead of storing the whole automaton first.
+        if (stateAcceptance) {
+          StreamingStateAcceptance.write(
+            automaton,
+            printer,
+            stateLabels,
+            subcommand,
+            subcommandArgs,
+            automatonName);
+        } else {
+          HoaWriter.write(
+            automaton,
+            printer,
+            stateLabels,
+            subcommand,
+            subcommandArgs,
+            automatonName);
+        }
 
         writer.flush();
       }
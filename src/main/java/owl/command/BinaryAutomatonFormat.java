@@ -0,0 +1,480 @@
+package owl.command;
+
+import owl.automaton.Automaton;
+import owl.automaton.HashMapAutomaton;
+import owl.automaton.acceptance.AllAcceptance;
+import owl.automaton.acceptance.BuchiAcceptance;
+import owl.automaton.acceptance.CoBuchiAcceptance;
+import owl.automaton.acceptance.EmersonLeiAcceptance;
+import owl.automaton.acceptance.GeneralizedBuchiAcceptance;
+import owl.automaton.acceptance.GeneralizedRabinAcceptance;
+import owl.automaton.acceptance.ParityAcceptance;
+import owl.automaton.acceptance.RabinAcceptance;
+import owl.automaton.edge.Edge;
+import owl.bdd.BddSet;
+import owl.bdd.BddSetFactory;
+import owl.thirdparty.jhoafparser.ast.AtomAcceptance;
+import owl.thirdparty.jhoafparser.ast.AtomLabel;
+import owl.thirdparty.jhoafparser.ast.BooleanExpression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Compact binary encoding of automata for passing them between tools without HOA text.
+ *
+ * <p>A stream is a sequence of automata. Every automaton starts with the magic bytes {@code OWLB}
+ * and a format version, followed by the atomic propositions, the acceptance condition, the initial
+ * states and finally the states with their edges. States are numbered in breadth-first order from
+ * the initial states and written in this order, hence the body ends once every state that has
+ * been referred to is written. Integers are unsigned LEB128 varints, strings are UTF-8 prefixed by
+ * their length, acceptance sets are stored as the bytes of a bit map, and labels and acceptance
+ * expressions are stored in prefix order. Edge labels are referred to by their index in a
+ * dictionary that grows along the body: the first use of a label refers to the next free index and
+ * is followed by the label itself. Parity, Rabin and generalised Rabin acceptance are tagged, so
+ * the acceptance class survives a round trip, and the number of acceptance sets is always stored.
+ *
+ * <p>The writer emits every state as it is explored. The reader decodes directly from a
+ * (memory-mapped) buffer without reading it into an intermediate array, and builds an explicit
+ * automaton from the encoding.
+ */
+final class BinaryAutomatonFormat {
+
+  private static final byte[] MAGIC = {'O', 'W', 'L', 'B'};
+  static final int MAGIC_LENGTH = MAGIC.length;
+  private static final int VERSION = 2;
+
+  private static final int ACCEPTANCE_GENERIC = 0;
+  private static final int ACCEPTANCE_ALL = 1;
+  private static final int ACCEPTANCE_BUCHI = 2;
+  private static final int ACCEPTANCE_GENERALIZED_BUCHI = 3;
+  private static final int ACCEPTANCE_CO_BUCHI = 4;
+  private static final int ACCEPTANCE_PARITY = 5;
+  private static final int ACCEPTANCE_RABIN = 6;
+  private static final int ACCEPTANCE_GENERALIZED_RABIN = 7;
+
+  private static final int EXPRESSION_FALSE = 0;
+  private static final int EXPRESSION_TRUE = 1;
+  private static final int EXPRESSION_ATOM = 2;
+  private static final int EXPRESSION_NOT = 3;
+  private static final int EXPRESSION_AND = 4;
+  private static final int EXPRESSION_OR = 5;
+
+  private BinaryAutomatonFormat() {}
+
+  /**
+   * Whether the buffer starts with an automaton in this format. The position is not changed.
+   */
+  static boolean isBinary(ByteBuffer buffer) {
+    if (buffer.remaining() < MAGIC.length) {
+      return false;
+    }
+
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (buffer.get(buffer.position() + i) != MAGIC[i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  static <S> void write(Automaton<S, ?> automaton, OutputStream out) throws IOException {
+    var output = new Output(out);
+    out.write(MAGIC);
+    output.varint(VERSION);
+
+    List<String> atomicPropositions = automaton.atomicPropositions();
+    output.varint(atomicPropositions.size());
+    for (String atomicProposition : atomicPropositions) {
+      output.bytes(atomicProposition.getBytes(StandardCharsets.UTF_8));
+    }
+
+    writeAcceptance(automaton.acceptance(), output);
+
+    // Number states in breadth-first order from the initial states for locality.
+    Map<S, Integer> ids = new HashMap<>();
+    var queue = new ArrayDeque<S>();
+
+    output.varint(automaton.initialStates().size());
+    for (S initialState : automaton.initialStates()) {
+      if (ids.putIfAbsent(initialState, ids.size()) == null) {
+        queue.add(initialState);
+      }
+
+      output.varint(ids.get(initialState));
+    }
+
+    Map<BddSet, Integer> labels = new HashMap<>();
+
+    while (!queue.isEmpty()) {
+      S state = queue.remove();
+      Map<Edge<S>, BddSet> edges = automaton.edgeMap(state);
+      output.varint(edges.size());
+
+      for (Map.Entry<Edge<S>, BddSet> entry : edges.entrySet()) {
+        Edge<S> edge = entry.getKey();
+        S successor = edge.successor();
+
+        if (ids.putIfAbsent(successor, ids.size()) == null) {
+          queue.add(successor);
+        }
+
+        Integer label = labels.get(entry.getValue());
+
+        if (label == null) {
+          output.varint(labels.size());
+          labels.put(entry.getValue(), labels.size());
+          writeLabel(entry.getValue().toExpression(), output);
+        } else {
+          output.varint(label);
+        }
+
+        output.varint(ids.get(successor));
+
+        BitSet colours = new BitSet();
+        for (int colour : edge.colours()) {
+          colours.set(colour);
+        }
+        output.bytes(colours.toByteArray());
+      }
+    }
+  }
+
+  private static void writeAcceptance(EmersonLeiAcceptance acceptance, Output output)
+    throws IOException {
+
+    if (acceptance instanceof AllAcceptance) {
+      output.varint(ACCEPTANCE_ALL);
+    } else if (acceptance instanceof BuchiAcceptance) {
+      output.varint(ACCEPTANCE_BUCHI);
+    } else if (acceptance instanceof GeneralizedBuchiAcceptance) {
+      output.varint(ACCEPTANCE_GENERALIZED_BUCHI);
+    } else if (acceptance instanceof CoBuchiAcceptance) {
+      output.varint(ACCEPTANCE_CO_BUCHI);
+    } else if (acceptance instanceof ParityAcceptance parityAcceptance) {
+      output.varint(ACCEPTANCE_PARITY);
+      output.bytes(parityAcceptance.parity().name().getBytes(StandardCharsets.UTF_8));
+    } else if (acceptance instanceof RabinAcceptance) {
+      output.varint(ACCEPTANCE_RABIN);
+    } else if (acceptance instanceof GeneralizedRabinAcceptance) {
+      output.varint(ACCEPTANCE_GENERALIZED_RABIN);
+    } else {
+      output.varint(ACCEPTANCE_GENERIC);
+    }
+
+    // Expressions do not necessarily use every set.
+    output.varint(acceptance.acceptanceSets());
+
+    if (!(acceptance instanceof AllAcceptance
+      || acceptance instanceof GeneralizedBuchiAcceptance
+      || acceptance instanceof CoBuchiAcceptance
+      || acceptance instanceof ParityAcceptance)) {
+      writeAcceptanceExpression(acceptance.booleanExpression(), output);
+    }
+  }
+
+  private static void writeAcceptanceExpression(BooleanExpression<AtomAcceptance> expression,
+    Output output) throws IOException {
+
+    if (writeOperator(expression, output)) {
+      writeAcceptanceExpression(expression.getLeft(), output);
+
+      if (expression.getRight() != null) {
+        writeAcceptanceExpression(expression.getRight(), output);
+      }
+    } else if (expression.isAtom()) {
+      AtomAcceptance atom = expression.getAtom();
+      output.varint(EXPRESSION_ATOM);
+      output.varint(atom.getType() == AtomAcceptance.Type.TEMPORAL_INF ? 1 : 0);
+      output.varint(atom.isNegated() ? 1 : 0);
+      output.varint(atom.getAcceptanceSet());
+    }
+  }
+
+  private static void writeLabel(BooleanExpression<AtomLabel> expression, Output output)
+    throws IOException {
+
+    if (writeOperator(expression, output)) {
+      writeLabel(expression.getLeft(), output);
+
+      if (expression.getRight() != null) {
+        writeLabel(expression.getRight(), output);
+      }
+    } else if (expression.isAtom()) {
+      output.varint(EXPRESSION_ATOM);
+      output.varint(expression.getAtom().getAPIndex());
+    }
+  }
+
+  /**
+   * Write the tag of a constant or an operator and return whether operands follow.
+   */
+  private static boolean writeOperator(BooleanExpression<?> expression, Output output)
+    throws IOException {
+
+    switch (expression.getType()) {
+      case EXP_FALSE:
+        output.varint(EXPRESSION_FALSE);
+        return false;
+      case EXP_TRUE:
+        output.varint(EXPRESSION_TRUE);
+        return false;
+      case EXP_NOT:
+        output.varint(EXPRESSION_NOT);
+        return true;
+      case EXP_AND:
+        output.varint(EXPRESSION_AND);
+        return true;
+      case EXP_OR:
+        output.varint(EXPRESSION_OR);
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Decode the automata of the buffer, starting at its position, one at a time as the stream is
+   * consumed.
+   *
+   * @param buffer the encoded automata, usually a memory-mapped file
+   * @param factory the factory for the edge labels of all automata of the buffer
+   */
+  static Stream<Automaton<Integer, ? extends EmersonLeiAcceptance>> stream(ByteBuffer buffer,
+    BddSetFactory factory) {
+
+    var input = buffer.duplicate();
+
+    return StreamSupport.stream(new Spliterators.AbstractSpliterator<
+      Automaton<Integer, ? extends EmersonLeiAcceptance>>(
+      Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+
+      @Override
+      public boolean tryAdvance(
+        Consumer<? super Automaton<Integer, ? extends EmersonLeiAcceptance>> action) {
+
+        if (!input.hasRemaining()) {
+          return false;
+        }
+
+        action.accept(readAutomaton(input, factory));
+        return true;
+      }
+    }, false);
+  }
+
+  private static Automaton<Integer, ? extends EmersonLeiAcceptance> readAutomaton(
+    ByteBuffer input, BddSetFactory factory) {
+
+    if (!isBinary(input)) {
+      throw new IllegalArgumentException("Not a binary automaton at offset " + input.position());
+    }
+
+    input.position(input.position() + MAGIC.length);
+    int version = varint(input);
+
+    if (version != VERSION) {
+      throw new IllegalArgumentException("Unsupported binary automaton version " + version);
+    }
+
+    int atomicPropositionCount = varint(input);
+    List<String> atomicPropositions = new ArrayList<>(atomicPropositionCount);
+
+    for (int i = 0; i < atomicPropositionCount; i++) {
+      int length = varint(input);
+      atomicPropositions.add(StandardCharsets.UTF_8.decode(input.slice(input.position(), length))
+        .toString());
+      input.position(input.position() + length);
+    }
+
+    EmersonLeiAcceptance acceptance = readAcceptance(input);
+    var automaton = HashMapAutomaton.create(atomicPropositions, factory, acceptance);
+
+    int states = 0;
+    int initialStateCount = varint(input);
+
+    for (int i = 0; i < initialStateCount; i++) {
+      int initialState = varint(input);
+
+      if (initialState == states) {
+        automaton.addState(states++);
+      }
+
+      automaton.addInitialState(initialState);
+    }
+
+    List<BddSet> labels = new ArrayList<>();
+    BitSet colours = new BitSet();
+
+    // Every state that has been referred to is followed by its edges.
+    for (int state = 0; state < states; state++) {
+      int edgeCount = varint(input);
+
+      for (int i = 0; i < edgeCount; i++) {
+        int labelIndex = varint(input);
+
+        if (labelIndex == labels.size()) {
+          labels.add(readLabel(input, factory));
+        }
+
+        BddSet label = labels.get(labelIndex);
+        int successor = varint(input);
+
+        if (successor == states) {
+          automaton.addState(states++);
+        }
+
+        int colourBytes = varint(input);
+
+        colours.clear();
+        for (int b = 0; b < colourBytes; b++) {
+          int bits = Byte.toUnsignedInt(input.get());
+          for (int bit = 0; bit < 8; bit++) {
+            if ((bits & (1 << bit)) != 0) {
+              colours.set(8 * b + bit);
+            }
+          }
+        }
+
+        automaton.addEdge(state, label, Edge.of(successor, colours));
+      }
+    }
+
+    return automaton;
+  }
+
+  private static EmersonLeiAcceptance readAcceptance(ByteBuffer input) {
+    int kind = varint(input);
+    ParityAcceptance.Parity parity = null;
+
+    if (kind == ACCEPTANCE_PARITY) {
+      int length = varint(input);
+      parity = ParityAcceptance.Parity.valueOf(
+        StandardCharsets.UTF_8.decode(input.slice(input.position(), length)).toString());
+      input.position(input.position() + length);
+    }
+
+    int sets = varint(input);
+
+    switch (kind) {
+      case ACCEPTANCE_ALL:
+        return AllAcceptance.INSTANCE;
+      case ACCEPTANCE_BUCHI:
+        return BuchiAcceptance.INSTANCE;
+      case ACCEPTANCE_GENERALIZED_BUCHI:
+        return GeneralizedBuchiAcceptance.of(sets);
+      case ACCEPTANCE_CO_BUCHI:
+        return CoBuchiAcceptance.INSTANCE;
+      case ACCEPTANCE_PARITY:
+        return new ParityAcceptance(sets, parity);
+      case ACCEPTANCE_RABIN:
+        return RabinAcceptance.ofPartial(readAcceptanceExpression(input)).orElseThrow(
+          () -> new IllegalArgumentException("Malformed Rabin acceptance condition"));
+      case ACCEPTANCE_GENERALIZED_RABIN:
+        return GeneralizedRabinAcceptance.ofPartial(readAcceptanceExpression(input)).orElseThrow(
+          () -> new IllegalArgumentException("Malformed generalized Rabin acceptance condition"));
+      case ACCEPTANCE_GENERIC:
+        return new EmersonLeiAcceptance(sets, readAcceptanceExpression(input));
+      default:
+        throw new IllegalArgumentException("Unknown acceptance condition " + kind);
+    }
+  }
+
+  private static BooleanExpression<AtomAcceptance> readAcceptanceExpression(ByteBuffer input) {
+    int tag = varint(input);
+
+    switch (tag) {
+      case EXPRESSION_FALSE:
+        return new BooleanExpression<>(false);
+      case EXPRESSION_TRUE:
+        return new BooleanExpression<>(true);
+      case EXPRESSION_ATOM:
+        var type = varint(input) == 1
+          ? AtomAcceptance.Type.TEMPORAL_INF
+          : AtomAcceptance.Type.TEMPORAL_FIN;
+        boolean negated = varint(input) == 1;
+        return new BooleanExpression<>(new AtomAcceptance(type, varint(input), negated));
+      case EXPRESSION_NOT:
+        return readAcceptanceExpression(input).not();
+      case EXPRESSION_AND:
+        return readAcceptanceExpression(input).and(readAcceptanceExpression(input));
+      case EXPRESSION_OR:
+        return readAcceptanceExpression(input).or(readAcceptanceExpression(input));
+      default:
+        throw new IllegalArgumentException("Unknown expression tag " + tag);
+    }
+  }
+
+  private static BddSet readLabel(ByteBuffer input, BddSetFactory factory) {
+    int tag = varint(input);
+
+    switch (tag) {
+      case EXPRESSION_FALSE:
+        return factory.of(false);
+      case EXPRESSION_TRUE:
+        return factory.of(true);
+      case EXPRESSION_ATOM:
+        return factory.of(varint(input));
+      case EXPRESSION_NOT:
+        return readLabel(input, factory).complement();
+      case EXPRESSION_AND:
+        return readLabel(input, factory).intersection(readLabel(input, factory));
+      case EXPRESSION_OR:
+        return readLabel(input, factory).union(readLabel(input, factory));
+      default:
+        throw new IllegalArgumentException("Unknown expression tag " + tag);
+    }
+  }
+
+  private static int varint(ByteBuffer input) {
+    int value = 0;
+
+    for (int shift = 0; shift < 35; shift += 7) {
+      int b = Byte.toUnsignedInt(input.get());
+      value |= (b & 0x7F) << shift;
+
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+
+    throw new IllegalArgumentException("Malformed varint at offset " + input.position());
+  }
+
+  private static final class Output {
+
+    private final OutputStream out;
+
+    private Output(OutputStream out) {
+      this.out = out;
+    }
+
+    private void varint(int value) throws IOException {
+      while ((value & ~0x7F) != 0) {
+        out.write((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+
+      out.write(value);
+    }
+
+    private void bytes(byte[] bytes) throws IOException {
+      varint(bytes.length);
+      out.write(bytes);
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package owl.command;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Transparent gzip compression of input and output files.
+ * Input is recognised by the gzip magic bytes, so compressed files need not be named '*.gz', and
+ * output is compressed if the file name ends with '.gz'.
+ */
+final class Compression {
+
+  static final int BUFFER_SIZE = 256 * 1024;
+
+  private static final String SUFFIX = ".gz";
+  private static final int MAGIC_LENGTH = 2;
+
+  private Compression() {}
+
+  /**
+   * The contents of the file, decompressed if it is gzip-compressed.
+   */
+  static BufferedInputStream open(Path file) throws IOException {
+    return decompress(Files.newInputStream(file));
+  }
+
+  /**
+   * The contents of the stream, decompressed if it starts with the gzip magic bytes. The result
+   * supports {@link InputStream#mark}, so the caller can look ahead in the contents as well.
+   */
+  static BufferedInputStream decompress(InputStream input) throws IOException {
+    var buffered = new BufferedInputStream(input, BUFFER_SIZE);
+
+    if (!isGzip(buffered)) {
+      return buffered;
+    }
+
+    return new BufferedInputStream(new GZIPInputStream(buffered, BUFFER_SIZE), BUFFER_SIZE);
+  }
+
+  /**
+   * Create the file, compressing its contents if the name ends with '.gz'.
+   *
+   * @param workers the number of threads compressing concurrently
+   */
+  static OutputStream create(Path file, int workers) throws IOException {
+    OutputStream output = Files.newOutputStream(file);
+
+    if (!file.getFileName().toString().endsWith(SUFFIX)) {
+      return new BufferedOutputStream(output, BUFFER_SIZE);
+    }
+
+    return new BufferedOutputStream(workers > 1
+      ? new ParallelGzipOutputStream(output, workers)
+      : new GZIPOutputStream(output, BUFFER_SIZE), BUFFER_SIZE);
+  }
+
+  /**
+   * A file that can be read by consumers that only read files, e.g. the Rebeca compiler. Closing
+   * it deletes the decompressed copy, if one was made.
+   */
+  static final class Uncompressed implements Closeable {
+
+    private final Path path;
+    @Nullable
+    private final Path directory;
+
+    private Uncompressed(Path path, @Nullable Path directory) {
+      this.path = path;
+      this.directory = directory;
+    }
+
+    Path path() {
+      return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (directory != null) {
+        Files.deleteIfExists(path);
+        Files.deleteIfExists(directory);
+      }
+    }
+  }
+
+  /**
+   * The file itself if it is not compressed, or else a temporary copy of its decompressed
+   * contents, which keeps the name of the file without '.gz'. The copy is deleted when the result
+   * is closed, so long-running processes do not accumulate copies.
+   */
+  static Uncompressed uncompressed(Path file) throws IOException {
+    try (var input = new BufferedInputStream(Files.newInputStream(file), MAGIC_LENGTH)) {
+      if (!isGzip(input)) {
+        return new Uncompressed(file, null);
+      }
+    }
+
+    String name = file.getFileName().toString();
+
+    if (name.endsWith(SUFFIX)) {
+      name = name.substring(0, name.length() - SUFFIX.length());
+    }
+
+    Path directory = Files.createTempDirectory("owl-");
+    var copy = new Uncompressed(directory.resolve(name), directory);
+
+    try (var input = open(file)) {
+      Files.copy(input, copy.path());
+    } catch (IOException | RuntimeException ex) {
+      copy.close();
+      throw ex;
+    }
+
+    return copy;
+  }
+
+  private static boolean isGzip(BufferedInputStream input) throws IOException {
+    input.mark(MAGIC_LENGTH);
+    byte[] magic = input.readNBytes(MAGIC_LENGTH);
+    input.reset();
+    return magic.length == MAGIC_LENGTH
+      && Byte.toUnsignedInt(magic[0]) == 0x1f
+      && Byte.toUnsignedInt(magic[1]) == 0x8b;
+  }
+}
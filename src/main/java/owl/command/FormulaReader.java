@@ -1,5 +1,7 @@
 package owl.command;
 
+import com.rebeca.ModelSnapshotStore;
+import com.rebeca.RebecaExpressionConverter;
 import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.misc.ParseCancellationException;
 import owl.ltl.LabelledFormula;
@@ -10,11 +12,13 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.UncheckedIOException;
-import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
@@ -33,6 +37,31 @@ public final class FormulaReader {
     @ArgGroup
     private Source source = null;
 
+    @Option(
+      names = {"--model-snapshot-dir"},
+      description = "Directory for snapshots of compiled Rebeca models. If a snapshot of an "
+        + "unchanged model exists, it is loaded instead of compiling the model again."
+    )
+    private Path modelSnapshotDirectory = null;
+
+    @Option(
+      names = {"--inline-defines"},
+      description = "Expand references to defines into Boolean combinations of the state variables "
+        + "they are defined over, instead of treating every define as an independent atomic "
+        + "proposition."
+    )
+    private boolean inlineDefines = false;
+
+    @Option(
+      names = {"--domain-constraints"},
+      description = "Add invariants relating comparisons of the same state variable with constants, "
+        + "e.g. 'x == 0' and 'x == 1' exclude each other, so that the automata do not contain "
+        + "letters that no state of the model produces. Every property is conjoined with "
+        + "G(invariant), hence its automaton only accepts runs that satisfy the invariant, even "
+        + "where the property alone would accept a run violating it."
+    )
+    private boolean domainConstraints = false;
+
     public static final class Source {
 
       @Override
@@ -54,7 +83,7 @@ public final class FormulaReader {
         description = "Input file (default: read from stdin). The file is read line-by-line and "
           + "it is assumed that each line contains a formula. Empty lines are skipped. If '-' is "
           + "specified, then the tool reads from stdin. This option is repeatable, but cannot be "
-          + "combined with '-f'."
+          + "combined with '-f'. Gzip-compressed files are decompressed transparently."
       )
       String[] formulaFile = null;
 
@@ -77,8 +106,9 @@ public final class FormulaReader {
 
         for (String file : source.formulaFile) {
           BufferedReader reader = "-".equals(file)
-            ? new BufferedReader(new InputStreamReader(System.in))
-            : Files.newBufferedReader(Path.of(file));
+            ? new BufferedReader(new InputStreamReader(Compression.decompress(System.in)))
+            : new BufferedReader(new InputStreamReader(Compression.open(Path.of(file)),
+              StandardCharsets.UTF_8));
 
           readerStreams.add(reader.lines().onClose(() -> {
             try {
@@ -98,7 +128,69 @@ public final class FormulaReader {
       return stringStream.filter(Predicate.not(String::isBlank));
     }
 
+    /**
+     * The input files as given on the command line.
+     */
+    public List<String> inputFiles() {
+        return source == null || source.formulaFile == null
+          ? List.of()
+          : List.of(source.formulaFile);
+    }
+
+    /**
+     * The first input file is the Rebeca model and every further input file is a property file
+     * that is checked against this model.
+     */
     public Stream<LabelledFormula> source() {
-        return rebecaToLTL(source.formulaFile[0], source.formulaFile[1], false);
+        if (source == null || source.formulaFile == null || source.formulaFile.length < 2) {
+          throw new IllegalArgumentException(
+            "Expected a Rebeca model followed by at least one property file.");
+        }
+
+        List<Compression.Uncompressed> files = new ArrayList<>(source.formulaFile.length);
+
+        try {
+          ModelSnapshotStore snapshots = modelSnapshotDirectory == null
+            ? null
+            : new ModelSnapshotStore(modelSnapshotDirectory);
+
+          // The Rebeca compiler reads files, hence compressed files are decompressed first.
+          for (String file : source.formulaFile) {
+            files.add(Compression.uncompressed(Path.of(file)));
+          }
+
+          List<String> paths = files.stream().map(file -> file.path().toString()).toList();
+
+          // All formulas are converted before rebecaToLTL returns, hence the copies can be deleted.
+          return rebecaToLTL(paths.get(0), paths.subList(1, paths.size()), false, snapshots,
+            conversionOptions());
+        } catch (IOException ex) {
+          throw new UncheckedIOException(ex);
+        } finally {
+          for (Compression.Uncompressed file : files) {
+            try {
+              file.close();
+            } catch (IOException ex) {
+              System.err.println("Could not delete " + file.path() + ": " + ex.getMessage());
+            }
+          }
+        }
+    }
+
+    /**
+     * The optional conversion steps selected on the command line.
+     */
+    public Set<RebecaExpressionConverter.Option> conversionOptions() {
+        Set<RebecaExpressionConverter.Option> options = EnumSet.noneOf(RebecaExpressionConverter.Option.class);
+
+        if (inlineDefines) {
+          options.add(RebecaExpressionConverter.Option.INLINE_DEFINES);
+        }
+
+        if (domainConstraints) {
+          options.add(RebecaExpressionConverter.Option.DOMAIN_CONSTRAINTS);
+        }
+
+        return options;
     }
   }
\ No newline at end of file
@@ -0,0 +1,151 @@
+package owl.command;
+
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import owl.automaton.Automaton;
+import owl.automaton.acceptance.EmersonLeiAcceptance;
+import owl.automaton.hoa.HoaReader;
+import owl.bdd.FactorySupplier;
+import owl.thirdparty.jhoafparser.parser.generated.ParseException;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazy stream of the automata of a HOA input.
+ * {@link HoaReader#readStream} pushes every automaton to a callback and only returns at the end of
+ * the input. Here it runs on a separate thread that hands the automata over one at a time through
+ * a {@link SynchronousQueue}, hence the parser waits until the previous automaton has been taken
+ * and at most one parsed automaton is pending besides the one being consumed. The input is opened
+ * on the first request for an automaton. Closing the stream stops the parser.
+ */
+final class HoaStream {
+
+  /**
+   * Opens the input of the stream.
+   */
+  @FunctionalInterface
+  interface Source {
+    Reader open() throws IOException;
+  }
+
+  private HoaStream() {}
+
+  static Stream<Automaton<Integer, ? extends EmersonLeiAcceptance>> of(Source source) {
+    var spliterator = new HoaSpliterator(source);
+    return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+  }
+
+  private static final class HoaSpliterator
+    extends Spliterators.AbstractSpliterator<Automaton<Integer, ? extends EmersonLeiAcceptance>> {
+
+    // Marks the end of the input in the queue.
+    private static final Object END = new Object();
+
+    private record Failure(RuntimeException exception) {}
+
+    // Thrown within the parser thread to abandon parsing once the stream is closed.
+    private static final class Cancelled extends RuntimeException {
+      private Cancelled() {
+        super(null, null, false, false);
+      }
+    }
+
+    private final Source source;
+    private final SynchronousQueue<Object> queue = new SynchronousQueue<>();
+    @Nullable
+    private Future<?> parser;
+    private boolean done;
+
+    private HoaSpliterator(Source source) {
+      super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+      this.source = source;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean tryAdvance(
+      Consumer<? super Automaton<Integer, ? extends EmersonLeiAcceptance>> action) {
+
+      if (done) {
+        return false;
+      }
+
+      if (parser == null) {
+        // The commands pool is unbounded, so a parser waiting for its consumer never starves
+        // other tasks.
+        parser = WorkerPool.commands().submit(this::parse);
+      }
+
+      Object item;
+
+      try {
+        item = queue.take();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        close();
+        throw new CancellationException("Interrupted while waiting for the next automaton.");
+      }
+
+      if (item == END) {
+        done = true;
+        return false;
+      }
+
+      if (item instanceof Failure failure) {
+        done = true;
+        throw failure.exception();
+      }
+
+      action.accept((Automaton<Integer, ? extends EmersonLeiAcceptance>) item);
+      return true;
+    }
+
+    private void parse() {
+      try (var reader = source.open()) {
+        HoaReader.readStream(reader,
+          FactorySupplier.defaultSupplier()::getBddSetFactory,
+          null,
+          this::handOver);
+        handOver(END);
+      } catch (Cancelled ex) {
+        // The stream has been closed.
+      } catch (IOException ex) {
+        handOver(new Failure(new UncheckedIOException(ex)));
+      } catch (ParseException ex) {
+        handOver(new Failure(new UncheckedExecutionException(ex)));
+      } catch (RuntimeException ex) {
+        handOver(new Failure(ex));
+      } catch (Error ex) {
+        // E.g. a stack overflow on a deeply nested label; the consumer must not wait forever.
+        handOver(new Failure(new UncheckedExecutionException(ex)));
+        throw ex;
+      }
+    }
+
+    private void handOver(Object item) {
+      try {
+        queue.put(item);
+      } catch (InterruptedException ex) {
+        throw new Cancelled();
+      }
+    }
+
+    private void close() {
+      done = true;
+
+      if (parser != null) {
+        parser.cancel(true);
+      }
+    }
+  }
+}
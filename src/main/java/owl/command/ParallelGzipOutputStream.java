@@ -0,0 +1,140 @@
+package owl.command;
+
+import com.google.common.util.concurrent.Futures;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip compression on several threads of the worker pool.
+ * The data is cut into blocks that are compressed independently into gzip members. A sequence of
+ * gzip members is a valid gzip file whose content is the concatenation of the members, hence any
+ * gzip reader, including {@link java.util.zip.GZIPInputStream}, reads the result. The members are
+ * written in order, and at most two blocks per worker are held in memory.
+ *
+ * <p>{@link #flush()} only writes the blocks that are complete, since a flush after every small
+ * write would otherwise produce tiny members. The last block is written by {@link #close()}.
+ */
+final class ParallelGzipOutputStream extends OutputStream {
+
+  private static final int BLOCK_SIZE = 1024 * 1024;
+
+  private final OutputStream out;
+  private final ExecutorService executor;
+  private final int workers;
+  private final Deque<Future<byte[]>> members = new ArrayDeque<>();
+  private byte[] block = new byte[BLOCK_SIZE];
+  private int size;
+  private boolean submitted;
+  private boolean closed;
+
+  ParallelGzipOutputStream(OutputStream out, int workers) {
+    this.out = out;
+    this.executor = WorkerPool.workers(workers);
+    this.workers = workers;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    ensureOpen();
+    block[size++] = (byte) b;
+
+    if (size == BLOCK_SIZE) {
+      submit();
+    }
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) throws IOException {
+    ensureOpen();
+
+    while (length > 0) {
+      int chunk = Math.min(length, BLOCK_SIZE - size);
+      System.arraycopy(bytes, offset, block, size, chunk);
+      size += chunk;
+      offset += chunk;
+      length -= chunk;
+
+      if (size == BLOCK_SIZE) {
+        submit();
+      }
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    ensureOpen();
+
+    while (!members.isEmpty() && members.peek().isDone()) {
+      writeMember();
+    }
+
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+
+    try {
+      // An empty file still needs one member to be a valid gzip file.
+      if (size > 0 || !submitted) {
+        submit();
+      }
+
+      while (!members.isEmpty()) {
+        writeMember();
+      }
+    } finally {
+      closed = true;
+      members.forEach(member -> member.cancel(true));
+      out.close();
+    }
+  }
+
+  private void submit() throws IOException {
+    byte[] data = block;
+    int length = size;
+    members.add(executor.submit(() -> compress(data, length)));
+    block = new byte[BLOCK_SIZE];
+    size = 0;
+    submitted = true;
+
+    // Wait for the oldest member instead of queueing blocks without bound.
+    while (members.size() > 2 * workers) {
+      writeMember();
+    }
+  }
+
+  private void writeMember() throws IOException {
+    out.write(Futures.getUnchecked(members.remove()));
+  }
+
+  private static byte[] compress(byte[] data, int length) {
+    var member = new ByteArrayOutputStream(length / 2);
+
+    try (var gzip = new GZIPOutputStream(member)) {
+      gzip.write(data, 0, length);
+    } catch (IOException ex) {
+      // Not thrown by a ByteArrayOutputStream.
+      throw new UncheckedIOException(ex);
+    }
+
+    return member.toByteArray();
+  }
+
+  private void ensureOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package owl.command;
+
+import owl.automaton.Automaton;
+import owl.automaton.acceptance.EmersonLeiAcceptance;
+import owl.automaton.edge.Edge;
+import owl.bdd.BddSet;
+import owl.thirdparty.jhoafparser.consumer.HOAConsumer;
+import owl.thirdparty.jhoafparser.consumer.HOAConsumerException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Writes an automaton with state-based acceptance while it is explored.
+ * The acceptance marks of every edge are pushed onto its successor, hence a state of the result is
+ * a state of the automaton together with the marks of an edge leading to it. These pairs are
+ * explored breadth-first from the initial states and every pair is written with its edges as soon
+ * as it is taken from the queue. Since the number of pairs is only known at the end, the optional
+ * {@code States:} header is left out. Only the numbers of the pairs seen so far and the queue of
+ * pairs still to be written are kept, the edges of a state are requested again from the automaton
+ * for every pair it is part of.
+ */
+final class StreamingStateAcceptance {
+
+  private StreamingStateAcceptance() {}
+
+  static <S> void write(Automaton<S, ?> automaton, HOAConsumer consumer, boolean stateLabels,
+    String subcommand, List<String> subcommandArgs, String automatonName)
+    throws HOAConsumerException {
+
+    new Explorer<>(automaton, consumer, stateLabels)
+      .write(subcommand, subcommandArgs, automatonName);
+  }
+
+  /**
+   * A state of the automaton reached with the given acceptance marks.
+   */
+  private record Copy<S>(S state, List<Integer> marks) {}
+
+  private static final class Explorer<S> {
+
+    private final Automaton<S, ?> automaton;
+    private final HOAConsumer consumer;
+    private final boolean stateLabels;
+
+    private final Map<Copy<S>, Integer> ids = new HashMap<>();
+    private final ArrayDeque<Copy<S>> queue = new ArrayDeque<>();
+    // Distinct sets of marks, shared by all copies with the same marks.
+    private final Map<List<Integer>, List<Integer>> marks = new HashMap<>();
+
+    private Explorer(Automaton<S, ?> automaton, HOAConsumer consumer, boolean stateLabels) {
+      this.automaton = automaton;
+      this.consumer = consumer;
+      this.stateLabels = stateLabels;
+    }
+
+    private void write(String subcommand, List<String> subcommandArgs, String automatonName)
+      throws HOAConsumerException {
+
+      consumer.notifyHeaderStart("v1");
+
+      for (S initialState : automaton.initialStates()) {
+        consumer.addStartStates(List.of(id(new Copy<>(initialState, List.of()))));
+      }
+
+      consumer.setAPs(automaton.atomicPropositions());
+
+      EmersonLeiAcceptance acceptance = automaton.acceptance();
+      consumer.setAcceptanceCondition(acceptance.acceptanceSets(), acceptance.booleanExpression());
+
+      Optional<String> acceptanceName = acceptance.name();
+
+      if (acceptanceName.isPresent()) {
+        consumer.provideAcceptanceName(acceptanceName.get(), acceptance.nameExtra());
+      }
+
+      if (automatonName != null) {
+        consumer.setName(automatonName);
+      }
+
+      if (subcommand != null) {
+        List<String> invocation = new ArrayList<>();
+        invocation.add(subcommand);
+        invocation.addAll(subcommandArgs);
+        consumer.setTool("owl", String.join(" ", invocation));
+      }
+
+      consumer.addProperties(List.of("trans-labels", "explicit-labels", "state-acc"));
+      consumer.notifyBodyStart();
+
+      while (!queue.isEmpty()) {
+        Copy<S> copy = queue.remove();
+        int id = ids.get(copy);
+
+        consumer.addState(id, stateLabels ? copy.state().toString() : null, null,
+          copy.marks().isEmpty() ? null : copy.marks());
+
+        for (Map.Entry<Edge<S>, BddSet> entry : automaton.edgeMap(copy.state()).entrySet()) {
+          Edge<S> edge = entry.getKey();
+          int successor = id(new Copy<>(edge.successor(), marks(edge)));
+          consumer.addEdgeWithLabel(id, entry.getValue().toExpression(), List.of(successor), null);
+        }
+
+        consumer.notifyEndOfState(id);
+      }
+
+      consumer.notifyEnd();
+    }
+
+    private int id(Copy<S> copy) {
+      Integer id = ids.get(copy);
+
+      if (id == null) {
+        id = ids.size();
+        ids.put(copy, id);
+        queue.add(copy);
+      }
+
+      return id;
+    }
+
+    private List<Integer> marks(Edge<S> edge) {
+      List<Integer> colours = new ArrayList<>();
+
+      for (int colour : edge.colours()) {
+        colours.add(colour);
+      }
+
+      return marks.computeIfAbsent(colours, List::copyOf);
+    }
+  }
+}
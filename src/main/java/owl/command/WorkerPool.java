@@ -0,0 +1,73 @@
+package owl.command;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide executors whose threads have large stacks.
+ * Formula conversion and automaton construction recurse along the structure of the input and
+ * the default thread stack is too small for deeply nested generated formulas, in particular in
+ * native images (see https://github.com/oracle/graal/issues/3398). Threads are reused across
+ * invocations and terminate when idle. The executors are shared and must not be shut down.
+ */
+public final class WorkerPool {
+
+  private static final long STACK_SIZE = 256L * 1024 * 1024;
+
+  private static final long KEEP_ALIVE_SECONDS = 60;
+
+  // Runs subcommands; unbounded, since subcommands block on the worker pool.
+  private static final ThreadPoolExecutor COMMANDS = new ThreadPoolExecutor(
+    0, Integer.MAX_VALUE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+    new SynchronousQueue<>(), threadFactory("main-with-larger-stack"));
+
+  private static final ThreadPoolExecutor WORKERS;
+
+  static {
+    int parallelism = Runtime.getRuntime().availableProcessors();
+    WORKERS = new ThreadPoolExecutor(
+      parallelism, parallelism, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+      new LinkedBlockingQueue<>(), threadFactory("worker-with-larger-stack"));
+    WORKERS.allowCoreThreadTimeOut(true);
+  }
+
+  private WorkerPool() {}
+
+  /**
+   * Executor for running a subcommand on a thread with a large stack.
+   */
+  public static ExecutorService commands() {
+    return COMMANDS;
+  }
+
+  /**
+   * Executor for independent tasks such as translating or compiling single properties. Tasks
+   * submitted to this executor must not wait for other tasks of the same executor.
+   *
+   * @param parallelism the number of threads the caller wants to use; the pool grows if it has
+   *     fewer threads, but never shrinks.
+   */
+  public static synchronized ExecutorService workers(int parallelism) {
+    if (parallelism > WORKERS.getMaximumPoolSize()) {
+      WORKERS.setMaximumPoolSize(parallelism);
+      WORKERS.setCorePoolSize(parallelism);
+    }
+
+    return WORKERS;
+  }
+
+  private static ThreadFactory threadFactory(String name) {
+    var counter = new AtomicInteger();
+
+    return runnable -> {
+      var thread = new Thread(null, runnable, name + '-' + counter.incrementAndGet(), STACK_SIZE);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
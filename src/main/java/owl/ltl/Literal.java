@@ -26,21 +26,44 @@ import owl.ltl.visitors.IntVisitor;
 import owl.ltl.visitors.Visitor;
 
 import javax.annotation.Nonnegative;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Function;
-import java.util.stream.IntStream;
 
 import static java.util.Objects.checkIndex;
 
 // TODO: fix naming.
 public final class Literal extends PropositionalOperator {
 
-  private static final List<Literal> CACHE = IntStream.range(0, 128)
-      .mapToObj(Literal::new)
-      .toList();
+  private static final VarHandle NEGATION;
+
+  static {
+    try {
+      NEGATION = MethodHandles.lookup().findVarHandle(Literal.class, "negation", Literal.class);
+    } catch (ReflectiveOperationException ex) {
+      throw new ExceptionInInitializerError(ex);
+    }
+  }
+
+  // Positive literals indexed by their atomic proposition. The table only grows. Before a table is
+  // copied, its empty slots are frozen with MOVED, so no literal can be published in a table after
+  // the copy has passed its slot; every literal is therefore published once.
+  private static final AtomicReference<AtomicReferenceArray<Literal>> CACHE =
+    new AtomicReference<>(new AtomicReferenceArray<>(128));
+
+  // Marks a slot of a table that is being replaced; never handed out.
+  private static final Literal MOVED = new Literal(Integer.MAX_VALUE - 1);
+
   private final int index;
-  private final Literal negation;
+
+  // Created on first use; the twin of a negated literal is set by the constructor.
+  private volatile Literal negation;
 
 
   private Literal(Literal other) {
@@ -52,15 +75,13 @@ public final class Literal extends PropositionalOperator {
     assert isNegated() ^ other.isNegated();
   }
 
-  // TODO: do not leak 'this'
+  /**
+   * Creates an unshared literal. Prefer {@link #of(int)}, which returns the interned instance.
+   */
   public Literal(@Nonnegative int index) {
     super(Literal.class, List.of(), Integer.hashCode(index + 1));
     checkIndex(index, Integer.MAX_VALUE);
     this.index = index + 1;
-    this.negation = new Literal(this);
-
-    assert getAtom() == negation.getAtom();
-    assert isNegated() ^ negation.isNegated();
   }
 
 
@@ -71,10 +92,53 @@ public final class Literal extends PropositionalOperator {
   public static Literal of(@Nonnegative int atomicProposition, boolean negate) {
     Preconditions.checkArgument(atomicProposition >= 0);
 
-    var literal = atomicProposition >= CACHE.size()
-        ? new Literal(atomicProposition)
-        : CACHE.get(atomicProposition);
-    return negate ? literal.negation : literal;
+    var literal = intern(atomicProposition);
+    return negate ? literal.not() : literal;
+  }
+
+  private static Literal intern(int atomicProposition) {
+    while (true) {
+      var table = CACHE.get();
+
+      if (atomicProposition >= table.length()) {
+        grow(table, atomicProposition);
+        continue;
+      }
+
+      var literal = table.get(atomicProposition);
+
+      if (literal == null) {
+        var created = new Literal(atomicProposition);
+        literal = table.compareAndExchange(atomicProposition, null, created);
+
+        if (literal == null) {
+          return created;
+        }
+      }
+
+      if (literal != MOVED) {
+        return literal;
+      }
+
+      // The table is being copied; wait until its successor is installed.
+      Thread.onSpinWait();
+    }
+  }
+
+  private static void grow(AtomicReferenceArray<Literal> table, int atomicProposition) {
+    int length = (int) Math.min(Integer.MAX_VALUE,
+      Math.max(atomicProposition + 1L, 2L * table.length()));
+    var grown = new AtomicReferenceArray<Literal>(length);
+
+    for (int i = 0; i < table.length(); i++) {
+      var literal = table.compareAndExchange(i, null, MOVED);
+
+      if (literal != null && literal != MOVED) {
+        grown.set(i, literal);
+      }
+    }
+
+    CACHE.compareAndSet(table, grown);
   }
 
   @Override
@@ -127,12 +191,59 @@ public final class Literal extends PropositionalOperator {
 
   @Override
   public Literal not() {
+    var negation = this.negation;
+
+    if (negation == null) {
+      var created = new Literal(this);
+      negation = (Literal) NEGATION.compareAndExchange(this, null, created);
+
+      if (negation == null) {
+        negation = created;
+      }
+    }
+
     return negation;
   }
 
   @Override
   public String toString() {
-    return isNegated() ? "!" + negation : String.format("p%d", index - 1);
+    return appendTo(new StringBuilder(12)).toString();
+  }
+
+  /**
+   * Appends the default name of this literal, e.g. {@code !p3}, without intermediate strings.
+   */
+  public void appendTo(Appendable out) throws IOException {
+    if (isNegated()) {
+      out.append('!');
+    }
+
+    out.append('p');
+
+    // Digits of the atom, most significant first.
+    int atom = getAtom();
+    int divisor = 1;
+
+    while (atom / divisor >= 10) {
+      divisor *= 10;
+    }
+
+    for (; divisor > 0; divisor /= 10) {
+      out.append((char) ('0' + atom / divisor % 10));
+    }
+  }
+
+  /**
+   * Appends the default name of this literal to a builder.
+   */
+  public StringBuilder appendTo(StringBuilder builder) {
+    try {
+      appendTo((Appendable) builder);
+      return builder;
+    } catch (IOException ex) {
+      // StringBuilder does not throw.
+      throw new UncheckedIOException(ex);
+    }
   }
 
   @Override
@@ -0,0 +1,50 @@
+package com;
+
+import org.junit.jupiter.api.Test;
+import owl.automaton.Automaton;
+import owl.automaton.hoa.HoaWriter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.RebecaWorkerTest.resource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class CommandRunnerTest {
+
+    @Test
+    void workersProduceTheSameAutomataAsOneWorker() throws Exception {
+        String model = resource("DiningPhilosophers.rebeca");
+        String property = resource("DiningPhilosophers.property");
+
+        // Without the translation cache every run translates every formula itself.
+        List<String> sequential = hoa(CommandRunner.rebecaToNba(model, property, false,
+                List.of("--dry-run", "--skip-translation-cache", "--workers", "1")));
+        List<String> parallel = hoa(CommandRunner.rebecaToNba(model, property, false,
+                List.of("--dry-run", "--skip-translation-cache", "--workers", "4")));
+
+        assertFalse(sequential.isEmpty());
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    void listenerReceivesTheAutomataInOrder() throws Exception {
+        String model = resource("DiningPhilosophers.rebeca");
+        String property = resource("DiningPhilosophers.property");
+
+        List<String> expected = hoa(CommandRunner.rebecaToNba(model, property, false,
+                List.of("--dry-run", "--skip-translation-cache")));
+        List<String> delivered = new ArrayList<>();
+
+        CommandRunner.rebecaToNba(model, property, false,
+                List.of("--dry-run", "--skip-translation-cache", "--workers", "4"),
+                (formula, automaton) -> delivered.add(HoaWriter.toString(automaton)));
+
+        assertEquals(expected, delivered);
+    }
+
+    private static List<String> hoa(List<Automaton<?, ?>> automata) {
+        return automata.stream().map(HoaWriter::toString).toList();
+    }
+}
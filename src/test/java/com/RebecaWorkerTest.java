@@ -0,0 +1,95 @@
+package com;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RebecaWorkerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    void answersEveryRequestWithOneLine() throws Exception {
+        String model = resource("DiningPhilosophers.rebeca");
+        String property = resource("DiningPhilosophers.property");
+
+        List<JsonNode> responses = serve(
+                request(1, model, property, "\"hoa\": true"),
+                "",
+                request(2, model, property, "\"hoa\": false, \"options\": [\"--unknown\"]"),
+                request(3, model, property + ".missing", "\"hoa\": false"),
+                "{not json");
+
+        assertEquals(4, responses.size());
+
+        JsonNode ok = responses.get(0);
+        assertEquals(1, ok.get("id").asInt());
+        assertEquals("ok", ok.get("status").asText());
+        assertTrue(ok.get("automata").size() > 0);
+
+        for (JsonNode automaton : ok.get("automata")) {
+            assertTrue(automaton.get("states").asInt() > 0);
+            assertTrue(automaton.get("hoa").asText().startsWith("HOA: v1"));
+        }
+
+        assertTrue(ok.get("metrics").has("millis"));
+
+        for (int i = 1; i < 4; i++) {
+            JsonNode error = responses.get(i);
+            assertEquals("error", error.get("status").asText());
+            assertFalse(error.get("message").asText().isEmpty());
+        }
+
+        assertEquals(2, responses.get(1).get("id").asInt());
+        assertEquals(3, responses.get(2).get("id").asInt());
+        assertFalse(responses.get(3).has("id"));
+    }
+
+    @Test
+    void restoresSystemOut() throws IOException {
+        PrintStream out = System.out;
+        serve();
+        assertSame(out, System.out);
+    }
+
+    private static List<JsonNode> serve(String... lines) throws IOException {
+        var input = new ByteArrayInputStream(
+                (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8));
+        var output = new ByteArrayOutputStream();
+
+        RebecaWorker.serve(input, new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        List<JsonNode> responses = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isBlank()) {
+                responses.add(MAPPER.readTree(line));
+            }
+        }
+
+        return responses;
+    }
+
+    private static String request(int id, String model, String property, String fields) {
+        return "{\"id\": " + id + ", \"model\": " + MAPPER.valueToTree(model)
+                + ", \"property\": " + MAPPER.valueToTree(property) + ", " + fields + "}";
+    }
+
+    static String resource(String name) throws URISyntaxException {
+        return Path.of(RebecaWorkerTest.class.getResource("/" + name).toURI()).toString();
+    }
+}
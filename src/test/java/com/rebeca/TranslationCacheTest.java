@@ -0,0 +1,20 @@
+package com.rebeca;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TranslationCacheTest {
+
+    @Test
+    void sharedCacheBelongsToTheThread() throws Exception {
+        TranslationCache cache = TranslationCache.shared();
+        TranslationCache other = CompletableFuture.supplyAsync(TranslationCache::shared).get();
+
+        assertSame(cache, TranslationCache.shared());
+        assertNotSame(cache, other);
+    }
+}
@@ -0,0 +1,122 @@
+package owl.command;
+
+import org.junit.jupiter.api.Test;
+import owl.automaton.Automaton;
+import owl.automaton.HashMapAutomaton;
+import owl.automaton.acceptance.BuchiAcceptance;
+import owl.automaton.acceptance.EmersonLeiAcceptance;
+import owl.automaton.acceptance.ParityAcceptance;
+import owl.automaton.edge.Edge;
+import owl.bdd.BddSetFactory;
+import owl.bdd.FactorySupplier;
+import owl.thirdparty.jhoafparser.ast.AtomAcceptance;
+import owl.thirdparty.jhoafparser.ast.BooleanExpression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryAutomatonFormatTest {
+
+  private final BddSetFactory factory = FactorySupplier.defaultSupplier().getBddSetFactory();
+
+  @Test
+  void buchiRoundTrip() throws IOException {
+    var automaton = cycle(BuchiAcceptance.INSTANCE);
+    assertSameAutomaton(automaton, roundTrip(List.of(automaton)).get(0));
+  }
+
+  @Test
+  void parityRoundTrip() throws IOException {
+    var automaton = cycle(new ParityAcceptance(3, ParityAcceptance.Parity.MIN_EVEN));
+    var read = roundTrip(List.of(automaton)).get(0);
+
+    assertEquals(ParityAcceptance.class, read.acceptance().getClass());
+    assertEquals(ParityAcceptance.Parity.MIN_EVEN, ((ParityAcceptance) read.acceptance()).parity());
+    assertSameAutomaton(automaton, read);
+  }
+
+  @Test
+  void genericRoundTrip() throws IOException {
+    var expression = new BooleanExpression<>(AtomAcceptance.Fin(0))
+      .and(new BooleanExpression<>(AtomAcceptance.Inf(1)));
+    var automaton = cycle(new EmersonLeiAcceptance(3, expression));
+
+    assertSameAutomaton(automaton, roundTrip(List.of(automaton)).get(0));
+  }
+
+  @Test
+  void severalAutomataInOneStream() throws IOException {
+    var buchi = cycle(BuchiAcceptance.INSTANCE);
+    var parity = cycle(new ParityAcceptance(2, ParityAcceptance.Parity.MAX_ODD));
+    var read = roundTrip(List.of(buchi, parity));
+
+    assertEquals(2, read.size());
+    assertSameAutomaton(buchi, read.get(0));
+    assertSameAutomaton(parity, read.get(1));
+  }
+
+  @Test
+  void rejectsOtherInput() {
+    var buffer = ByteBuffer.wrap("HOA: v1".getBytes());
+
+    assertFalse(BinaryAutomatonFormat.isBinary(buffer));
+    assertThrows(IllegalArgumentException.class,
+      () -> BinaryAutomatonFormat.stream(buffer, factory).toList());
+  }
+
+  /**
+   * A cycle 0 -> 1 -> 2 -> 0 with self-loops, numbered in the breadth-first order of the writer,
+   * so the states keep their numbers in a round trip. The edges use every acceptance set.
+   */
+  private HashMapAutomaton<Integer, EmersonLeiAcceptance> cycle(EmersonLeiAcceptance acceptance) {
+    var automaton = HashMapAutomaton.<Integer, EmersonLeiAcceptance>create(
+      List.of("a", "b"), factory, acceptance);
+
+    for (int state = 0; state < 3; state++) {
+      automaton.addState(state);
+    }
+
+    automaton.addInitialState(0);
+    automaton.addEdge(0, factory.of(0), Edge.of(1, 0));
+    automaton.addEdge(0, factory.of(0).complement(), Edge.of(0));
+    automaton.addEdge(1, factory.of(1), Edge.of(2, acceptance.acceptanceSets() - 1));
+    automaton.addEdge(1, factory.of(true), Edge.of(1));
+    automaton.addEdge(2, factory.of(0).intersection(factory.of(1)), Edge.of(0));
+    return automaton;
+  }
+
+  private List<Automaton<Integer, ? extends EmersonLeiAcceptance>> roundTrip(
+    List<? extends Automaton<Integer, ?>> automata) throws IOException {
+
+    var out = new ByteArrayOutputStream();
+
+    for (Automaton<Integer, ?> automaton : automata) {
+      BinaryAutomatonFormat.write(automaton, out);
+    }
+
+    var buffer = ByteBuffer.wrap(out.toByteArray());
+    assertTrue(BinaryAutomatonFormat.isBinary(buffer));
+    return BinaryAutomatonFormat.stream(buffer, factory).toList();
+  }
+
+  private static void assertSameAutomaton(Automaton<Integer, ?> expected,
+    Automaton<Integer, ?> actual) {
+
+    assertEquals(expected.atomicPropositions(), actual.atomicPropositions());
+    assertEquals(expected.acceptance().acceptanceSets(), actual.acceptance().acceptanceSets());
+    assertEquals(expected.acceptance().booleanExpression(), actual.acceptance().booleanExpression());
+    assertEquals(expected.initialStates(), actual.initialStates());
+    assertEquals(expected.states(), actual.states());
+
+    for (Integer state : expected.states()) {
+      assertEquals(expected.edgeMap(state), actual.edgeMap(state), "edges of state " + state);
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package owl.command;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class CompressionTest {
+
+  // Several blocks of the parallel stream, with a partial last block.
+  private static final byte[] DATA = data(3 * 1024 * 1024 + 12345);
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void parallelGzipIsReadableByGzipInputStream() throws IOException {
+    var compressed = new ByteArrayOutputStream();
+
+    try (var out = new ParallelGzipOutputStream(compressed, 4)) {
+      // Mix single bytes and arrays that straddle block boundaries.
+      out.write(DATA[0]);
+      out.write(DATA, 1, DATA.length - 1);
+      out.flush();
+    }
+
+    try (var in = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+      assertArrayEquals(DATA, in.readAllBytes());
+    }
+  }
+
+  @Test
+  void emptyParallelGzipIsReadable() throws IOException {
+    var compressed = new ByteArrayOutputStream();
+    new ParallelGzipOutputStream(compressed, 2).close();
+
+    try (var in = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+      assertEquals(0, in.readAllBytes().length);
+    }
+  }
+
+  @Test
+  void createdFilesAreCompressedByName() throws IOException {
+    for (int workers : new int[]{1, 4}) {
+      Path file = directory.resolve("out-" + workers + ".gz");
+      write(file, workers);
+
+      try (var in = new GZIPInputStream(Files.newInputStream(file))) {
+        assertArrayEquals(DATA, in.readAllBytes());
+      }
+
+      try (var in = Compression.open(file)) {
+        assertArrayEquals(DATA, in.readAllBytes());
+      }
+    }
+
+    Path plain = directory.resolve("out.txt");
+    write(plain, 4);
+    assertArrayEquals(DATA, Files.readAllBytes(plain));
+
+    try (var in = Compression.open(plain)) {
+      assertArrayEquals(DATA, in.readAllBytes());
+    }
+  }
+
+  @Test
+  void uncompressedCopiesAreDeletedOnClose() throws IOException {
+    Path file = directory.resolve("model.rebeca.gz");
+    write(file, 2);
+
+    Path copy;
+
+    try (var uncompressed = Compression.uncompressed(file)) {
+      copy = uncompressed.path();
+      assertNotEquals(file, copy);
+      assertEquals("model.rebeca", copy.getFileName().toString());
+      assertArrayEquals(DATA, Files.readAllBytes(copy));
+    }
+
+    assertFalse(Files.exists(copy));
+    assertFalse(Files.exists(copy.getParent()));
+  }
+
+  @Test
+  void plainFilesAreNotCopied() throws IOException {
+    Path file = directory.resolve("model.rebeca");
+    Files.write(file, DATA);
+
+    try (var uncompressed = Compression.uncompressed(file)) {
+      assertEquals(file, uncompressed.path());
+    }
+
+    // Closing must not delete the original.
+    assertArrayEquals(DATA, Files.readAllBytes(file));
+  }
+
+  private static void write(Path file, int workers) throws IOException {
+    try (OutputStream out = Compression.create(file, workers)) {
+      out.write(DATA);
+    }
+  }
+
+  private static byte[] data(int length) {
+    // Compressible, but not trivially so.
+    byte[] data = new byte[length];
+    var random = new Random(42);
+
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) ('a' + random.nextInt(8));
+    }
+
+    return data;
+  }
+}